@@ -0,0 +1,41 @@
+package automail;
+
+import java.util.Comparator;
+
+/**
+ * New Class: Team 03
+ * Orders mail items most urgent first, by priority level raised by the time the item has waited.
+ *
+ * The urgency of an item at time t is priority + agingRate * (t - arrival), so an item of low priority overtakes
+ * fresher items of higher priority once it has waited long enough and no floor is starved. All items age at the
+ * same rate, so the order between two items never changes and is the order of priority - agingRate * arrival.
+ * Items can therefore be kept in a heap without re-keying it as time passes. Ties go to the earlier arrival, then
+ * the lower identifier.
+ */
+public class AgedPriorityOrder implements Comparator<MailItem> {
+
+    private final double agingRate;
+
+    /**
+     * @param agingRate priority levels an item gains per tick it waits, 0 for strict priority order
+     */
+    public AgedPriorityOrder(double agingRate) {
+        if (agingRate < 0) throw new IllegalArgumentException("Negative priority aging rate " + agingRate);
+        this.agingRate = agingRate;
+    }
+
+    /**
+     * @return the urgency of an item less the aging all items share at the current time
+     */
+    public double key(MailItem mailItem) {
+        return mailItem.getPriority() - agingRate * mailItem.getArrivalTime();
+    }
+
+    @Override
+    public int compare(MailItem a, MailItem b) {
+        int order = Double.compare(key(b), key(a));
+        if (order != 0) return order;
+        order = Integer.compare(a.getArrivalTime(), b.getArrivalTime());
+        return order != 0 ? order : Integer.compare(a.getIdNumber(), b.getIdNumber());
+    }
+}
@@ -1,6 +1,6 @@
 package automail;
 
-import simulation.IMailDelivery;
+import simulation.SimulationContext;
 
 /**
  * Modified Class: Team 03
@@ -9,44 +9,25 @@ public class Automail {
 
     private Robot[] robots;
     private MailPool mailPool;
-
-    private static int numRegRobots;
-    private static int numFastRobots;
-    private static int numBulkRobots;
-
-    private static boolean fee_charging;
     
-    public Automail(MailPool mailPool, IMailDelivery delivery, boolean fee_charging,
-                    int numRegRobots, int numFastRobots, int numBulkRobots) {
+    public Automail(SimulationContext context, MailPool mailPool) {
     	/** Initialize the MailPool */
     	
     	this.mailPool = mailPool;
-    	Automail.numRegRobots = numRegRobots;
-    	Automail.numFastRobots = numFastRobots;
-    	Automail.numBulkRobots = numBulkRobots;
-
-    	Automail.fee_charging = fee_charging;
+    	int numRegRobots = context.getNumRegRobots();
+    	int numFastRobots = context.getNumFastRobots();
+    	int numBulkRobots = context.getNumBulkRobots();
     	
     	/** Initialize robots of different types, their IDs are globally incrementing */
     	int i, j, k;
     	robots = new Robot[numRegRobots+numBulkRobots+numFastRobots];
-    	for (i = 0; i < numRegRobots; i++) robots[i] = new RegularRobot(delivery, mailPool, i);
-    	for (j = i; j < numRegRobots+numFastRobots; j++) robots[j] = new FastRobot(delivery, mailPool, j);
-    	for (k = j; k < numRegRobots+numFastRobots+numBulkRobots; k++) robots[k] = new BulkRobot(delivery, mailPool, k);
+    	for (i = 0; i < numRegRobots; i++) robots[i] = new RegularRobot(context, mailPool, i);
+    	for (j = i; j < numRegRobots+numFastRobots; j++) robots[j] = new FastRobot(context, mailPool, j);
+    	for (k = j; k < numRegRobots+numFastRobots+numBulkRobots; k++) robots[k] = new BulkRobot(context, mailPool, k);
     }
 
     public Robot[] getRobots() {
         return robots;
     }
     public MailPool getMailPool() { return mailPool; }
-
-    public static int getNumRegRobots() { return numRegRobots; }
-    public static int getNumFastRobots() {
-        return numFastRobots;
-    }
-    public static int getNumBulkRobots() {
-        return numBulkRobots;
-    }
-
-    public static boolean isFee_charging() { return fee_charging; }
 }
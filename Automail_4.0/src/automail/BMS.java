@@ -6,37 +6,43 @@ import java.util.HashMap;
 
 /**
  * New Class: Team 03
- * External Building Management System to lookup service fee
+ * External Building Management System to lookup service fee.
+ * Each simulation has its own BMS; the WifiModem behind it is one per process, so calls to it are serialised.
  */
 public class BMS extends BMSAdaptor{
 
-    private static BMS BMS_server = null;
-
     private final HashMap<Integer, Double> serviceFeeMap = new HashMap<>();
-    private final WifiModem wifiModem = WifiModem.getInstance(Building.getInstance().getMailroomLocationFloor());
+    private final ServiceFeeModem modem;
+    private CircuitBreaker circuitBreaker = null;
 
     /**
-     * Private constructor for singleton class
-     * @throws Exception
+     * Connect to the WifiModem installed in the mailroom of the building
+     * @param building the building served
+     * @throws Exception if the modem cannot be installed on the mailroom floor
      */
-    private BMS() throws Exception {}
+    public BMS(Building building) throws Exception {
+        WifiModem wifiModem = WifiModem.getInstance(building.getMailroomLocationFloor());
+        this.modem = floor -> {
+            synchronized (wifiModem) {
+                return wifiModem.forwardCallToAPI_LookupPrice(floor);
+            }
+        };
+    }
 
     /**
-     * Get an instance of BMS class that share globally among all this program
-     * Initialise using constructor if no instance exist yet
-     * @return Only instance of BMS class
+     * Connect through another modem, e.g. a StubModem
+     * @param modem the modem the lookups are forwarded to
      */
-    public static BMS getInstance() {
-        if (BMS_server == null) {
-            try {
-                BMS_server = new BMS();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        return BMS_server;
+    public BMS(ServiceFeeModem modem) {
+        this.modem = modem;
     }
 
+    /**
+     * Guard the modem with a circuit breaker. While it is open, lookups return the last known fee straight away.
+     * @param circuitBreaker the breaker every modem call goes through
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) { this.circuitBreaker = circuitBreaker; }
+
     /**
      * Find the the corresponding service fee of a certain floor
      * return the most recent retrieval if wifi connection failed
@@ -45,16 +51,25 @@ public class BMS extends BMSAdaptor{
      */
     @Override
     public double lookupServiceFee(int nFloor) {
-        double price = wifiModem.forwardCallToAPI_LookupPrice(nFloor);
+        double price = requestServiceFee(nFloor);
 
-        if (price < 0) {
-            if (serviceFeeMap.containsKey(nFloor)) {
-                price = serviceFeeMap.get(nFloor);
-            } else {
-                price = 0;
+        synchronized (serviceFeeMap) {
+            if (price < 0) {
+                if (serviceFeeMap.containsKey(nFloor)) {
+                    price = serviceFeeMap.get(nFloor);
+                } else {
+                    price = 0;
+                }
             }
+            serviceFeeMap.put(nFloor, price);
         }
-        serviceFeeMap.put(nFloor, price);
         return price;
     }
+
+    /** @see #requestServiceFee(int) */
+    @Override
+    protected double requestServiceFee(int nFloor) {
+        if (circuitBreaker == null) return modem.forwardCallToAPI_LookupPrice(nFloor);
+        return circuitBreaker.call(() -> modem.forwardCallToAPI_LookupPrice(nFloor));
+    }
 }
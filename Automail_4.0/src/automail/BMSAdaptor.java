@@ -1,5 +1,8 @@
 package automail;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * New Class: Team 03
  * Indirection BMS adaptor class to prevent future variation
@@ -12,8 +15,18 @@ public abstract class BMSAdaptor {
      * @param onFloor destination floor of mail item
      * @return service fee
      */
-    public static double getServiceFee(int onFloor) {
-        return BMS.getInstance().lookupServiceFee(onFloor);
+    public double getServiceFee(int onFloor) {
+        return lookupServiceFee(onFloor);
+    }
+
+    /**
+     * Start looking up a service fee without waiting for the result
+     * @param onFloor destination floor of mail item
+     * @param executor runs the lookup
+     * @return the service fee once retrieved, following the same rules as getServiceFee
+     */
+    public CompletableFuture<Double> prefetchServiceFee(int onFloor, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> lookupServiceFee(onFloor), executor);
     }
 
     /**
@@ -23,4 +36,11 @@ public abstract class BMSAdaptor {
      */
     public abstract double lookupServiceFee(int onFloor);
 
+    /**
+     * Make a single request to the external Building management system, without any fallback
+     * @param onFloor destination floor of mail items
+     * @return service fee, or a negative value if the request failed
+     */
+    protected abstract double requestServiceFee(int onFloor);
+
 }
@@ -3,6 +3,10 @@ package automail;
 import util.Configuration;
 
 
+/**
+ * Modified Class: Team 03
+ * The layout of the building, owned by a SimulationContext
+ */
 public class Building
 {
 
@@ -15,8 +19,6 @@ public class Building
     /** Represents the mailroom location */
     private final int mailroomLocationFloor;
 
-    private static Building building;
-
     private Building(int nFloors, int lowestFloor, int mailroomLocationFloor)
     {
         this.nFloors = nFloors;
@@ -24,17 +26,11 @@ public class Building
         this.mailroomLocationFloor = mailroomLocationFloor;
     }
 
-    public static Building getInstance() {
-        if(building == null)
-        {
-            Configuration configuration = Configuration.getInstance();
-            int nFloors = Integer.parseInt(configuration.getProperty(Configuration.N_FLOORS_KEY));
-            int lowestFloor = Integer.parseInt(configuration.getProperty(Configuration.LOWEST_FLOOR_KEY));
-            int mailroomLocationFloor = Integer.parseInt(configuration.getProperty(Configuration.MAILROOM_LOCATION_FLOOR_KEY));
-            building = new Building(nFloors, lowestFloor, mailroomLocationFloor);
-        }
-
-        return building;
+    public static Building fromConfiguration(Configuration configuration) {
+        int nFloors = Integer.parseInt(configuration.getProperty(Configuration.N_FLOORS_KEY));
+        int lowestFloor = Integer.parseInt(configuration.getProperty(Configuration.LOWEST_FLOOR_KEY));
+        int mailroomLocationFloor = Integer.parseInt(configuration.getProperty(Configuration.MAILROOM_LOCATION_FLOOR_KEY));
+        return new Building(nFloors, lowestFloor, mailroomLocationFloor);
     }
 
     public int getnFloors() {
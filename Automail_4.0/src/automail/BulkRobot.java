@@ -1,9 +1,8 @@
 package automail;
 
 import exceptions.ItemTooHeavyException;
-import simulation.IMailDelivery;
+import simulation.SimulationContext;
 
-import java.util.LinkedList;
 
 /**
  * New Class: Team 03
@@ -12,19 +11,18 @@ import java.util.LinkedList;
 public class BulkRobot extends Robot{
 
     private static final int MAX_LOADING_ITEMS = 5;
-    private static int total_operating_time;
     private static final int MOVING_SPEED = 1;
 
     /**
      * Initiates a bulk robot type. Use superclass constructor.
      * Set its robot ID globally, and set hasHand as false
      *
-     * @param delivery governs the final delivery
+     * @param context the simulation the robot belongs to
      * @param mailPool is the source of mail items
      * @param number an unique ID among all robot
      */
-    public BulkRobot(IMailDelivery delivery, MailPool mailPool, int number) {
-        super(delivery, mailPool);
+    public BulkRobot(SimulationContext context, MailPool mailPool, int number) {
+        super(context, mailPool);
         setId("B" + number);
         setHasHand(false);
     }
@@ -39,9 +37,15 @@ public class BulkRobot extends Robot{
         }
     }
 
-    /** @see #incrementOperatingTime()  */
+    /** @see #incrementOperatingTime(int)  */
     @Override
-    protected void incrementOperatingTime() { total_operating_time++; }
+    protected void incrementOperatingTime(int ticks) {
+        getContext().incrementOperatingTime(RobotBaseRate.BULK, ticks);
+    }
+
+    /** @see #getMovingSpeed() */
+    @Override
+    public int getMovingSpeed() { return BulkRobot.MOVING_SPEED; }
 
     /** @see #getMaxLoadingCapacity() */
     @Override
@@ -49,23 +53,25 @@ public class BulkRobot extends Robot{
 
     /** @see #getAverageTime() */
     @Override
-    public double getAverageTime() { return (double)total_operating_time / Automail.getNumBulkRobots(); }
+    public double getAverageTime() {
+        return (double)getContext().getOperatingTime(RobotBaseRate.BULK) / getContext().getNumBulkRobots();
+    }
 
     /** @see #getBaseRate() */
     @Override
     public double getBaseRate() { return RobotBaseRate.BULK.getBaseRate(); }
 
 
-    /** @see #addToRobot(LinkedList) */
+    /** @see #addToRobot(FloorIndexedMailQueue) */
     @Override
-    public void addToRobot(LinkedList<MailItem> pool) throws ItemTooHeavyException {
+    public void addToRobot(FloorIndexedMailQueue pool) throws ItemTooHeavyException {
         assert(getTube().isEmpty());
         for (int i = 0; i < MAX_LOADING_ITEMS; i++) {
             if (!pool.isEmpty()) {
-                MailItem mail = pool.get(0);
+                MailItem mail = pool.getFirst();
                 if (mail.WEIGHT > getIndividualMaxWeight()) throw new ItemTooHeavyException();
                 getTube().add(0, mail);
-                pool.remove();
+                pool.removeFirst();
             } else break;
         }
         setDeliveryItem(getTube().get(0));
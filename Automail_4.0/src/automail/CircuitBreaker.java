@@ -0,0 +1,232 @@
+package automail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.DoubleSupplier;
+
+/**
+ * New Class: Team 03
+ * Circuit breaker around calls to the modem, which report failure with a negative result.
+ *
+ * CLOSED: calls go through, with a timeout and a limited number of retries. Retries are paid for from a budget
+ * that every call let through tops up by retryRatio, so a failing modem cannot multiply the load on it.
+ * After failureThreshold failed calls in a row the breaker opens.
+ * OPEN: calls fail straight away, so callers can fall back to the last known fee without waiting.
+ * After openMillis the breaker lets one trial call through (HALF_OPEN), which closes it again on success
+ * and re-opens it on failure.
+ *
+ * Every change of state starts a new generation, and a call only counts towards the state of the generation it
+ * was let through in: a call that started while CLOSED and finishes after the breaker opened changes nothing,
+ * and only the trial call moves the breaker out of HALF_OPEN.
+ *
+ * With a timeout, attempts run on at most MAX_CALL_THREADS threads. A modem call that cannot be interrupted
+ * keeps its thread after it times out, so while the modem hangs the threads fill up, and further calls then
+ * fail fast instead of starting more threads.
+ */
+public class CircuitBreaker {
+
+    /** Result of a call that failed or was not made */
+    public static final double FAILED = -1;
+
+    private static final double MAX_RETRY_TOKENS = 10;
+
+    /** Most attempts in progress at once, including those that timed out but have not returned */
+    static final int MAX_CALL_THREADS = 4;
+
+    /** Returned by allowRequest for a call that is not let through */
+    private static final long REJECTED = -1;
+
+    /** Possible states of the breaker */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long timeoutMillis;
+    private final int maxRetries;
+    private final double retryRatio;
+    private final ExecutorService timeoutExecutor;
+
+    private State state = State.CLOSED;
+    /** Number of state changes so far */
+    private long generation = 0;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+    private double retryTokens = MAX_RETRY_TOKENS;
+
+    private final long[] transitions = new long[State.values().length];
+    private long calls = 0;
+    private long failures = 0;
+    private long timeouts = 0;
+    private long retries = 0;
+    private long retryBudgetExhausted = 0;
+    private long fastFails = 0;
+
+    /**
+     * @param failureThreshold failed calls in a row that open the breaker
+     * @param openMillis how long the breaker stays open before a trial call
+     * @param timeoutMillis how long a single attempt may take, 0 for no timeout
+     * @param maxRetries retries of a failed attempt within one call
+     * @param retryRatio retry budget added by every first attempt
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, long timeoutMillis, int maxRetries,
+                          double retryRatio) {
+        if (failureThreshold < 1) throw new IllegalArgumentException("Failure threshold must be at least 1");
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.maxRetries = maxRetries;
+        this.retryRatio = retryRatio;
+        this.timeoutExecutor = timeoutMillis > 0 ? new ThreadPoolExecutor(0, MAX_CALL_THREADS, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "modem-call");
+                    thread.setDaemon(true);
+                    return thread;
+                }) : null;
+    }
+
+    /**
+     * Make a call through the breaker
+     * @param request the call, returning a negative value on failure
+     * @return the result of the call, or FAILED if every attempt failed or the breaker is open
+     */
+    public double call(DoubleSupplier request) {
+        long admitted = allowRequest();
+        if (admitted == REJECTED) return FAILED;
+
+        double result = attempt(request);
+        for (int retry = 0; result < 0 && retry < maxRetries && takeRetryToken(); retry++) {
+            result = attempt(request);
+        }
+        recordResult(admitted, result >= 0);
+        return result >= 0 ? result : FAILED;
+    }
+
+    /**
+     * Decide whether a call may go through, moving from OPEN to HALF_OPEN once the open period is over
+     * @return the generation the call is let through in, or REJECTED
+     */
+    private synchronized long allowRequest() {
+        calls++;
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED || (state == State.HALF_OPEN && !trialInFlight)) {
+            if (state == State.HALF_OPEN) trialInFlight = true;
+            retryTokens = Math.min(MAX_RETRY_TOKENS, retryTokens + retryRatio);
+            return generation;
+        }
+        fastFails++;
+        return REJECTED;
+    }
+
+    private synchronized boolean takeRetryToken() {
+        if (retryTokens < 1) {
+            retryBudgetExhausted++;
+            return false;
+        }
+        retryTokens--;
+        retries++;
+        return true;
+    }
+
+    /**
+     * @param admitted the generation the call was let through in
+     * @param success whether the call succeeded
+     */
+    private synchronized void recordResult(long admitted, boolean success) {
+        if (!success) failures++;
+        /** The breaker has moved on since the call was let through */
+        if (admitted != generation) return;
+
+        if (state == State.HALF_OPEN) {
+            /** Only one call is let through per HALF_OPEN generation: this is the trial */
+            trialInFlight = false;
+            consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+            if (success) {
+                transitionTo(State.CLOSED);
+            } else {
+                open();
+            }
+        } else if (success) {
+            consecutiveFailures = 0;
+        } else if (++consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        transitionTo(State.OPEN);
+    }
+
+    private void transitionTo(State next) {
+        state = next;
+        generation++;
+        transitions[next.ordinal()]++;
+    }
+
+    /**
+     * A single attempt, abandoned if it takes longer than the timeout
+     */
+    private double attempt(DoubleSupplier request) {
+        if (timeoutExecutor == null) return request.getAsDouble();
+        Future<Double> result;
+        try {
+            result = timeoutExecutor.submit(request::getAsDouble);
+        } catch (RejectedExecutionException e) {
+            /** Every call thread is still stuck in the modem */
+            synchronized (this) {
+                fastFails++;
+            }
+            return FAILED;
+        }
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            synchronized (this) {
+                timeouts++;
+            }
+            return FAILED;
+        } catch (ExecutionException e) {
+            return FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FAILED;
+        }
+    }
+
+    public synchronized State getState() { return state; }
+
+    /**
+     * @param state a breaker state
+     * @return how many times the breaker moved into that state
+     */
+    public synchronized long getTransitions(State state) { return transitions[state.ordinal()]; }
+
+    public synchronized long getCalls() { return calls; }
+    public synchronized long getFailures() { return failures; }
+    public synchronized long getTimeouts() { return timeouts; }
+    public synchronized long getRetries() { return retries; }
+    public synchronized long getRetryBudgetExhausted() { return retryBudgetExhausted; }
+    public synchronized long getFastFails() { return fastFails; }
+
+    /** @return retries that can be made before the budget runs out */
+    synchronized double getRetryTokens() { return retryTokens; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Fee breaker: State[%s],Opened[%d],HalfOpened[%d],Closed[%d],Calls[%d],Failures[%d],"
+                        + "Timeouts[%d],Retries[%d],RetryBudgetExhausted[%d],FastFails[%d]",
+                state, transitions[State.OPEN.ordinal()], transitions[State.HALF_OPEN.ordinal()],
+                transitions[State.CLOSED.ordinal()], calls, failures, timeouts, retries, retryBudgetExhausted,
+                fastFails);
+    }
+}
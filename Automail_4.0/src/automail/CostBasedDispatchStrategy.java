@@ -0,0 +1,114 @@
+package automail;
+
+import exceptions.ItemTooHeavyException;
+import simulation.Clock;
+
+import java.util.Arrays;
+
+/**
+ * New Class: Team 03
+ * Dispatch that costs every candidate load of every waiting robot and sends the cheapest first.
+ *
+ * A candidate is a waiting robot with the cluster of ClusteredDispatchStrategy anchored at one of the pending
+ * floors: the items of the anchor and of the floors between it and the mailroom, topped up from the other side of
+ * the mailroom, up to the capacity of the robot. The candidate is planned as the robot would be loaded and is
+ * scored as a whole. Its completion time is estimated from the speed of the robot: the moves between the floors
+ * in delivery order and back to the mailroom, plus a tick for each floor stopped at. Its value is how fast the
+ * delay of its items grows while they wait, the derivative of (age ^ 1.2) at the age each would be delivered.
+ * Robots are then given loads greedily by value per tick, the ordering that minimises weighted completion time on
+ * a single machine (Smith's rule), so a FastRobot wins the far floors a slow robot would spend long trips on, and
+ * a BulkRobot wins dense batches of near floors.
+ *
+ * The tick of a robot is weighted by 1 + Dispatch_Cost_Weight * RobotBaseRate, so with a weight above 0 loads
+ * go to the robots that are cheaper to run. At the default of 0 only the projected delay counts.
+ */
+public class CostBasedDispatchStrategy implements DispatchStrategy {
+
+    /** Exponent of the delay penalty, as in ReportDelivery */
+    private static final double PENALTY = 1.2;
+
+    private final int mailroomFloor;
+    private final Clock clock;
+    private final double costWeight;
+    private final ClusteredDispatchStrategy clusters;
+    private final ClusteredDispatchStrategy.Cluster candidate = new ClusteredDispatchStrategy.Cluster();
+    private boolean[] assigned = new boolean[0];
+
+    /**
+     * @param building the building, for the floor of the mailroom
+     * @param clock the simulation clock, for the age of pending items
+     * @param costWeight weight of the base rate of a robot against the delay of its items, 0 to ignore it
+     */
+    public CostBasedDispatchStrategy(Building building, Clock clock, double costWeight) {
+        this.mailroomFloor = building.getMailroomLocationFloor();
+        this.clock = clock;
+        this.costWeight = costWeight;
+        this.clusters = new ClusteredDispatchStrategy(building);
+    }
+
+    @Override
+    public void dispatch(Robot[] waiting, int count, FloorIndexedMailQueue pool) throws ItemTooHeavyException {
+        if (assigned.length < count) assigned = new boolean[Math.max(count, assigned.length * 2)];
+        Arrays.fill(assigned, 0, count, false);
+        for (int n = 0; n < count && !pool.isEmpty(); n++) {
+            int lowest = pool.lowestFloor();
+            int highest = pool.highestFloor();
+            int bestRobot = -1;
+            int bestAnchor = lowest;
+            double bestScore = -1;
+            for (int i = 0; i < count; i++) {
+                if (assigned[i] || sameTypeUnassigned(waiting, i)) continue;
+                for (int anchor = lowest; anchor >= lowest && anchor <= highest; anchor = pool.floorAtOrAbove(anchor + 1)) {
+                    double score = score(waiting[i], pool, anchor);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestRobot = i;
+                        bestAnchor = anchor;
+                    }
+                }
+            }
+            assigned[bestRobot] = true;
+            clusters.loadCluster(waiting[bestRobot], pool, bestAnchor);
+        }
+    }
+
+    /**
+     * @return true if an earlier unassigned robot is of the same type, and so has the same candidates
+     */
+    private boolean sameTypeUnassigned(Robot[] waiting, int index) {
+        for (int i = 0; i < index; i++) {
+            if (!assigned[i] && waiting[i].getClass() == waiting[index].getClass()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Estimate a candidate load without taking it from the pool
+     * @param anchor a floor with pending items, the farthest floor of the band of the load
+     * @return growth of the delay the load takes away, per weighted tick of the robot
+     */
+    private double score(Robot robot, FloorIndexedMailQueue pool, int anchor) {
+        clusters.planCluster(pool, anchor, robot.getMaxLoadingCapacity(), candidate);
+        int speed = robot.getMovingSpeed();
+        int now = clock.Time();
+        double value = 0;
+        int travelled = 0;
+        int position = mailroomFloor;
+        /** The leftover on the other side is delivered first, then the band from the mailroom outwards */
+        for (int n = 0; n < candidate.stops; n++) {
+            int stop = n < candidate.stops - candidate.bandStops
+                    ? candidate.bandStops + n : candidate.stops - 1 - n;
+            int floor = candidate.floors[stop];
+            travelled += moves(position, floor, speed);
+            int age = now - pool.getFirst(floor).getArrivalTime() + travelled;
+            value += candidate.items[stop] * PENALTY * Math.pow(Math.max(1, age), PENALTY - 1);
+            position = floor;
+        }
+        double ticks = travelled + moves(position, mailroomFloor, speed) + candidate.stops;
+        return value / (ticks * (1 + costWeight * robot.getBaseRate()));
+    }
+
+    private int moves(int from, int to, int speed) {
+        return (Math.abs(to - from) + speed - 1) / speed;
+    }
+}
@@ -0,0 +1,69 @@
+package automail;
+
+import exceptions.ItemTooHeavyException;
+import simulation.Clock;
+import util.Configuration;
+
+import java.util.Comparator;
+
+/**
+ * New Class: Team 03
+ * Decides which pending mail items are loaded into which waiting robots, selected by Dispatch_Strategy:
+ * pool (the original behaviour), nearest-floor, type-aware, clustered, cost or priority.
+ *
+ * MailPool calls dispatch whenever there are pending items and waiting robots, then sends off every robot that
+ * was loaded. A strategy loads a robot either with Robot.addToRobot, which takes items in pool order, or with
+ * Robot.loadItems, which takes the items the strategy removed from the pool. A strategy should load at least one
+ * robot when it is called, otherwise the event driven engine falls back to stepping one tick at a time.
+ *
+ * A strategy loads the robots itself rather than returning its assignments for MailPool to apply. The dispatch is
+ * part of the tick loop, which allocates nothing once warmed up, so each strategy keeps its own buffers for the
+ * loads it builds instead of handing back a new list of assignments on every call.
+ */
+public interface DispatchStrategy {
+
+    /**
+     * Load waiting robots with pending items
+     * @param waiting robots waiting in the mailroom, in the order they arrived, only read by the strategy
+     * @param count number of waiting robots at the start of the array
+     * @param pool pending items, highest floor first; loaded items are removed from it
+     * @throws ItemTooHeavyException if an item is too heavy for the robot it is loaded into
+     */
+    void dispatch(Robot[] waiting, int count, FloorIndexedMailQueue pool) throws ItemTooHeavyException;
+
+    /**
+     * @return the order in which the pool keeps the items of a floor, most urgent first, or null for arrival order
+     */
+    default Comparator<MailItem> priorityOrder() {
+        return null;
+    }
+
+    /**
+     * @param configuration the simulation properties, for Dispatch_Strategy
+     * @param building the building the robots deliver in
+     * @param clock the simulation clock, for the age of pending items
+     * @return the configured dispatch strategy
+     * @throws IllegalArgumentException if the strategy is unknown
+     */
+    static DispatchStrategy fromConfiguration(Configuration configuration, Building building, Clock clock) {
+        String name = configuration.getProperty(Configuration.DISPATCH_STRATEGY_KEY).trim().toLowerCase();
+        switch (name) {
+            case "pool":
+                return new PoolOrderDispatchStrategy();
+            case "nearest-floor":
+                return new NearestFloorDispatchStrategy(building);
+            case "type-aware":
+                return new TypeAwareDispatchStrategy(building);
+            case "clustered":
+                return new ClusteredDispatchStrategy(building);
+            case "cost":
+                return new CostBasedDispatchStrategy(building, clock,
+                        Double.parseDouble(configuration.getProperty(Configuration.DISPATCH_COST_WEIGHT_KEY)));
+            case "priority":
+                return new PriorityDispatchStrategy(building,
+                        Double.parseDouble(configuration.getProperty(Configuration.PRIORITY_AGING_RATE_KEY)));
+            default:
+                throw new IllegalArgumentException("Unknown dispatch strategy " + name);
+        }
+    }
+}
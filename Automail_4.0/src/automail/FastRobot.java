@@ -1,9 +1,8 @@
 package automail;
 
 import exceptions.ItemTooHeavyException;
-import simulation.IMailDelivery;
+import simulation.SimulationContext;
 
-import java.util.LinkedList;
 
 /**
  * New Class: Team 03
@@ -13,18 +12,17 @@ public class FastRobot extends Robot{
 
     private static final int MAX_LOADING_ITEMS = 1;
     private static final int MOVING_SPEED = 3;
-    private static int total_operating_time;
 
     /**
      * Initiates a fast robot type. Use superclass constructor.
      * Set its robot ID globally, and set hasHand as true
      *
-     * @param delivery governs the final delivery
+     * @param context the simulation the robot belongs to
      * @param mailPool is the source of mail items
      * @param number an unique ID among all robot
      */
-    public FastRobot(IMailDelivery delivery, MailPool mailPool, int number) {
-        super(delivery, mailPool);
+    public FastRobot(SimulationContext context, MailPool mailPool, int number) {
+        super(context, mailPool);
         setId("F" + number);
         setHasHand(true);
     }
@@ -44,9 +42,15 @@ public class FastRobot extends Robot{
         }
     }
 
-    /** @see #incrementOperatingTime()  */
+    /** @see #incrementOperatingTime(int)  */
     @Override
-    protected void incrementOperatingTime() { total_operating_time++; }
+    protected void incrementOperatingTime(int ticks) {
+        getContext().incrementOperatingTime(RobotBaseRate.FAST, ticks);
+    }
+
+    /** @see #getMovingSpeed() */
+    @Override
+    public int getMovingSpeed() { return FastRobot.MOVING_SPEED; }
 
     /** @see #getMaxLoadingCapacity() */
     @Override
@@ -54,20 +58,22 @@ public class FastRobot extends Robot{
 
     /** @see #getAverageTime() */
     @Override
-    public double getAverageTime() { return (double)total_operating_time / Automail.getNumFastRobots(); }
+    public double getAverageTime() {
+        return (double)getContext().getOperatingTime(RobotBaseRate.FAST) / getContext().getNumFastRobots();
+    }
 
     /** @see #getBaseRate() */
     @Override
     public double getBaseRate() { return RobotBaseRate.FAST.getBaseRate(); }
 
 
-    /** @see #addToRobot(LinkedList) */
+    /** @see #addToRobot(FloorIndexedMailQueue) */
     @Override
-    public void addToRobot(LinkedList<MailItem> pool) throws ItemTooHeavyException {
+    public void addToRobot(FloorIndexedMailQueue pool) throws ItemTooHeavyException {
         assert(getDeliveryItem() == null);
         MailItem mail = pool.getFirst();
         if (mail.WEIGHT > getIndividualMaxWeight()) throw new ItemTooHeavyException();
         setDeliveryItem(mail);
-        pool.remove(0);
+        pool.removeFirst();
     }
 }
@@ -0,0 +1,58 @@
+package automail;
+
+/**
+ * New Class: Team 03
+ * The charge for delivering a mail item, reported with the delivery.
+ *
+ * A robot reuses one FeeCharge for all its deliveries, so charging a fee does not allocate. The charge is only
+ * valid during the delivery it is reported with: anything that keeps it must copy its fields.
+ */
+public class FeeCharge {
+
+    private double serviceFee;
+    private double maintenanceCost;
+    private double averageTime;
+    private double totalCost;
+
+    /**
+     * An empty charge, to be filled in by set
+     */
+    public FeeCharge() {
+    }
+
+    /**
+     * @param serviceFee service fee of the destination floor
+     * @param maintenanceCost maintenance cost of the robot
+     * @param averageTime average operating time of the robot type
+     * @param totalCost total charge of the delivery
+     */
+    public FeeCharge(double serviceFee, double maintenanceCost, double averageTime, double totalCost) {
+        set(serviceFee, maintenanceCost, averageTime, totalCost);
+    }
+
+    /**
+     * Overwrite the charge with the charge of another delivery
+     * @return this charge
+     */
+    public FeeCharge set(double serviceFee, double maintenanceCost, double averageTime, double totalCost) {
+        this.serviceFee = serviceFee;
+        this.maintenanceCost = maintenanceCost;
+        this.averageTime = averageTime;
+        this.totalCost = totalCost;
+        return this;
+    }
+
+    public double getServiceFee() { return serviceFee; }
+    public double getMaintenanceCost() { return maintenanceCost; }
+    public double getAverageTime() { return averageTime; }
+    public double getTotalCost() { return totalCost; }
+
+    /**
+     * @return the charge as it is appended to the delivery log
+     */
+    @Override
+    public String toString() {
+        return String.format(" | Service Fee: %.2f | Maintenance: %.2f | Avg. Operating Time: %.2f | Total Charge: %.2f",
+                serviceFee, maintenanceCost, averageTime, totalCost);
+    }
+}
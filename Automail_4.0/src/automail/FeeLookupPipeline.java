@@ -0,0 +1,69 @@
+package automail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * New Class: Team 03
+ * Issues service fee lookups for robots.
+ *
+ * Without an executor the lookup is made when the fee is charged, blocking the tick loop for the whole modem
+ * round trip. With an executor the lookup is started when a robot sets off towards its destination floor, so
+ * the fee is usually ready by the time the item is delivered. Either way the time the tick loop spends waiting
+ * for fees is measured.
+ */
+public class FeeLookupPipeline {
+
+    private final BMSAdaptor bms;
+    private final Executor executor;
+
+    private long lookups = 0;
+    private long stalls = 0;
+    private long stallNanos = 0;
+
+    /**
+     * @param bms where the fees are looked up
+     * @param executor runs lookups in the background, or null to look fees up when they are charged
+     */
+    public FeeLookupPipeline(BMSAdaptor bms, Executor executor) {
+        this.bms = bms;
+        this.executor = executor;
+    }
+
+    /**
+     * Start looking up the fee of a floor a robot has been dispatched to
+     * @param onFloor destination floor of the robot
+     * @return the pending fee, or null if lookups are not made in the background
+     */
+    public CompletableFuture<Double> prefetch(int onFloor) {
+        if (executor == null) return null;
+        return bms.prefetchServiceFee(onFloor, executor);
+    }
+
+    /**
+     * Get the fee to charge for a delivery, waiting for it if necessary
+     * @param onFloor destination floor of the delivery
+     * @param pending the result of prefetch for this floor, or null
+     * @return service fee
+     */
+    public double getServiceFee(int onFloor, CompletableFuture<Double> pending) {
+        lookups++;
+        if (pending != null && pending.isDone()) return pending.join();
+
+        long start = System.nanoTime();
+        double fee = (pending == null) ? bms.getServiceFee(onFloor) : pending.join();
+        stallNanos += System.nanoTime() - start;
+        stalls++;
+        return fee;
+    }
+
+    public long getLookups() { return lookups; }
+    public long getStalls() { return stalls; }
+    public long getStallNanos() { return stallNanos; }
+
+    @Override
+    public String toString() {
+        return String.format("Fee lookups: Lookups[%d],Stalled[%d],StallTime[%.1f ms]%s", lookups, stalls,
+                stallNanos / 1e6, executor == null ? "" : " (asynchronous)");
+    }
+}
@@ -0,0 +1,228 @@
+package automail;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * New Class: Team 03
+ * Pending mail items indexed by destination floor.
+ *
+ * Each floor has its own FIFO bucket and a bitset records which buckets are non-empty, so adding an item is O(1)
+ * and taking the item for the highest floor is O(1) apart from a bitset scan over the floors.
+ * Items come out in the same order as the old floor-sorted list: highest floor first, and arrival order within
+ * a floor.
+ *
+ * Given a priority order, each floor is a heap in that order instead, and a PriorityMailIndex across the floors
+ * finds the most urgent item of the whole queue. That item is also the first of its floor, so it is taken with
+ * removeFirst(floor) like any other, in O(log n).
+ */
+public class FloorIndexedMailQueue {
+
+    private final int lowestFloor;
+    private Queue<MailItem>[] buckets;
+    private final BitSet occupiedFloors = new BitSet();
+    private int size;
+    /** Order within a floor, null for arrival order */
+    private final Comparator<MailItem> priorityOrder;
+    private final PriorityMailIndex priorityIndex;
+
+    /**
+     * @param lowestFloor the lowest floor of the building
+     * @param nFloors the number of floors of the building, used to size the floor index
+     */
+    public FloorIndexedMailQueue(int lowestFloor, int nFloors) {
+        this(lowestFloor, nFloors, null);
+    }
+
+    /**
+     * @param lowestFloor the lowest floor of the building
+     * @param nFloors the number of floors of the building, used to size the floor index
+     * @param priorityOrder most urgent item first, or null to keep arrival order within a floor
+     */
+    public FloorIndexedMailQueue(int lowestFloor, int nFloors, Comparator<MailItem> priorityOrder) {
+        this.lowestFloor = lowestFloor;
+        this.buckets = newBuckets(Math.max(nFloors, 1));
+        this.size = 0;
+        this.priorityOrder = priorityOrder;
+        this.priorityIndex = priorityOrder == null ? null : new PriorityMailIndex(priorityOrder);
+    }
+
+    /**
+     * Adds an item behind all the items already waiting for the same floor, or in its place in the priority order
+     * @param mailItem the mail item being added
+     */
+    public void add(MailItem mailItem) {
+        int index = indexOf(mailItem.getDestFloor());
+        if (index >= buckets.length) grow(index + 1);
+        Queue<MailItem> bucket = buckets[index];
+        if (bucket == null) {
+            bucket = priorityOrder == null ? new ArrayDeque<>() : new PriorityQueue<>(priorityOrder);
+            buckets[index] = bucket;
+        }
+        bucket.add(mailItem);
+        if (priorityIndex != null) priorityIndex.add(mailItem);
+        occupiedFloors.set(index);
+        size++;
+    }
+
+    /**
+     * Adds every item of the batch, in list order
+     * @param mailItems the mail items being added
+     */
+    public void addAll(List<MailItem> mailItems) {
+        for (int i = 0; i < mailItems.size(); i++) add(mailItems.get(i));
+    }
+
+    /**
+     * @return the next item to hand out, i.e. the first item of the highest floor: its earliest arrival, or its
+     *         most urgent item in the priority order
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public MailItem getFirst() {
+        return buckets[highestIndex()].element();
+    }
+
+    /**
+     * Removes and returns the next item to hand out
+     * @return the first item of the highest floor, as for getFirst()
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public MailItem removeFirst() {
+        return removeFrom(highestIndex());
+    }
+
+    /**
+     * @param floor a floor with pending items
+     * @return the first item of the floor, the earliest arrival or the most urgent in the priority order, left in
+     *         the queue
+     * @throws NoSuchElementException if there are no items for the floor
+     */
+    public MailItem getFirst(int floor) {
+        int index = indexOf(floor);
+        if (!occupiedFloors.get(index)) throw new NoSuchElementException("No mail for floor " + floor);
+        return buckets[index].element();
+    }
+
+    /**
+     * Removes and returns the first item of a floor, as for getFirst(int)
+     * @param floor a floor with pending items
+     * @throws NoSuchElementException if there are no items for the floor
+     */
+    public MailItem removeFirst(int floor) {
+        int index = indexOf(floor);
+        if (!occupiedFloors.get(index)) throw new NoSuchElementException("No mail for floor " + floor);
+        return removeFrom(index);
+    }
+
+    /**
+     * @return the most urgent item in the priority order, left in the queue
+     * @throws IllegalStateException if the queue has no priority order
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public MailItem mostUrgent() {
+        if (priorityIndex == null) throw new IllegalStateException("Mail queue has no priority order");
+        return priorityIndex.peek();
+    }
+
+    /**
+     * @return the highest floor with pending items
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int highestFloor() {
+        return lowestFloor + highestIndex();
+    }
+
+    /**
+     * @return the lowest floor with pending items
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int lowestFloor() {
+        int index = occupiedFloors.nextSetBit(0);
+        if (index < 0) throw new NoSuchElementException();
+        return lowestFloor + index;
+    }
+
+    /**
+     * @param floor any floor of the building
+     * @return the floor with pending items closest to the given floor, the lower one if two are as close
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int nearestFloor(int floor) {
+        if (size == 0) throw new NoSuchElementException();
+        int index = Math.max(0, floor - lowestFloor);
+        int below = occupiedFloors.previousSetBit(index);
+        int above = occupiedFloors.nextSetBit(index);
+        if (below < 0) return lowestFloor + above;
+        if (above < 0 || index - below <= above - index) return lowestFloor + below;
+        return lowestFloor + above;
+    }
+
+    /**
+     * @param floor any floor of the building
+     * @return the highest floor with pending items at or below the given floor, or lowestFloor - 1 if none
+     */
+    public int floorAtOrBelow(int floor) {
+        int index = floor - lowestFloor;
+        return lowestFloor + (index < 0 ? -1 : occupiedFloors.previousSetBit(index));
+    }
+
+    /**
+     * @param floor any floor of the building
+     * @return the lowest floor with pending items at or above the given floor, or lowestFloor - 1 if none
+     */
+    public int floorAtOrAbove(int floor) {
+        int index = occupiedFloors.nextSetBit(Math.max(0, floor - lowestFloor));
+        return lowestFloor + index;
+    }
+
+    /**
+     * @return the number of items pending for a floor
+     */
+    public int sizeOf(int floor) {
+        int index = floor - lowestFloor;
+        return (index < 0 || index >= buckets.length || buckets[index] == null) ? 0 : buckets[index].size();
+    }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public int size() { return size; }
+
+
+    /**************************************** Private helper functions ********************************************/
+
+    private int indexOf(int floor) {
+        int index = floor - lowestFloor;
+        if (index < 0) throw new IllegalArgumentException("Floor " + floor + " is below the lowest floor " + lowestFloor);
+        return index;
+    }
+
+    private MailItem removeFrom(int index) {
+        MailItem mailItem = buckets[index].remove();
+        if (buckets[index].isEmpty()) occupiedFloors.clear(index);
+        if (priorityIndex != null) priorityIndex.remove(mailItem);
+        size--;
+        return mailItem;
+    }
+
+    private int highestIndex() {
+        int index = occupiedFloors.length() - 1;
+        if (index < 0) throw new NoSuchElementException();
+        return index;
+    }
+
+    private void grow(int minLength) {
+        Queue<MailItem>[] grown = newBuckets(Math.max(minLength, buckets.length * 2));
+        System.arraycopy(buckets, 0, grown, 0, buckets.length);
+        buckets = grown;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Queue<MailItem>[] newBuckets(int length) {
+        return (Queue<MailItem>[]) new Queue[length];
+    }
+}
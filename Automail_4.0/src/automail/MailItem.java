@@ -1,8 +1,5 @@
 package automail;
 
-import java.util.Map;
-import java.util.TreeMap;
-
 /**
  * Modified Class: Team 03
  * Represents a mail item
@@ -11,29 +8,45 @@ public class MailItem {
 	
     /** Represents the destination floor to which the mail is intended to go */
     protected final int DESTINATION_FLOOR;
-    /** The mail identifier */
-    protected final String MAILITEM_ID;
+    /** The mail identifier, dense and unique within a simulation */
+    protected final int MAILITEM_ID;
     /** The time the mail item arrived */
     protected final int ARRIVAL_TIME;
     /** The weight in grams of the mail item */
     protected final int WEIGHT;
+    /** The priority level of the mail item, 0 if it has none */
+    protected final int PRIORITY;
 
     /**
      * Constructor for a MailItem
      * @param dest_floor the destination floor intended for this mail item
      * @param arrival_time the time that the mail arrived
      * @param weight the weight of this mail item
+     * @param id the identifier allocated by the simulation creating this mail item
      */
-    public MailItem(int dest_floor, int arrival_time, int weight){
+    public MailItem(int dest_floor, int arrival_time, int weight, int id){
+        this(dest_floor, arrival_time, weight, id, 0);
+    }
+
+    /**
+     * Constructor for a MailItem with a priority level
+     * @param dest_floor the destination floor intended for this mail item
+     * @param arrival_time the time that the mail arrived
+     * @param weight the weight of this mail item
+     * @param id the identifier allocated by the simulation creating this mail item
+     * @param priority the priority level of this mail item, higher is more urgent
+     */
+    public MailItem(int dest_floor, int arrival_time, int weight, int id, int priority){
         this.DESTINATION_FLOOR = dest_floor;
-        this.MAILITEM_ID = String.valueOf(hashCode());
+        this.MAILITEM_ID = id;
         this.ARRIVAL_TIME = arrival_time;
         this.WEIGHT = weight;
+        this.PRIORITY = priority;
     }
 
     @Override
     public String toString(){
-        return String.format("Mail Item:: ID: %6s | Arrival: %4d | Destination: %2d | Weight: %4d",
+        return String.format("Mail Item:: ID: %6d | Arrival: %4d | Destination: %2d | Weight: %4d",
                 MAILITEM_ID, ARRIVAL_TIME, DESTINATION_FLOOR, WEIGHT);
     }
 
@@ -50,6 +63,14 @@ public class MailItem {
      * @return the ID of the mail item
      */
     public String getId() {
+        return String.valueOf(MAILITEM_ID);
+    }
+
+    /**
+     *
+     * @return the ID of the mail item as a number, counting up from 0 in order of creation
+     */
+    public int getIdNumber() {
         return MAILITEM_ID;
     }
 
@@ -68,16 +89,18 @@ public class MailItem {
    public int getWeight(){
        return WEIGHT;
    }
-   
-	static private int count = 0;
-	static private Map<Integer, Integer> hashMap = new TreeMap<Integer, Integer>();
+
+    /**
+     *
+     * @return the priority level of the mail item, 0 if it has none
+     */
+    public int getPriority(){
+        return PRIORITY;
+    }
 
 	@Override
 	public int hashCode() {
-		Integer hash0 = super.hashCode();
-		Integer hash = hashMap.get(hash0);
-		if (hash == null) { hash = count++; hashMap.put(hash0, hash); }
-		return hash;
+		return MAILITEM_ID;
 	}
 
 }
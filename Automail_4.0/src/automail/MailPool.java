@@ -1,10 +1,11 @@
 package automail;
 
-import java.util.LinkedList;
-import java.util.Comparator;
-import java.util.ListIterator;
+import java.util.Arrays;
+import java.util.List;
 
 import exceptions.ItemTooHeavyException;
+import simulation.SimulationContext;
+import simulation.SimulationMonitor;
 
 /**
  * Modified Class: Team 03
@@ -12,17 +13,42 @@ import exceptions.ItemTooHeavyException;
  * addToPool is called when there are mail items newly arrived at the building to add to the MailPool or
  * if a robot returns with some undelivered items - these are added back to the MailPool.
  * The data structure and algorithms used in the MailPool is your choice.
- * 
+ * Pending items are kept in a FloorIndexedMailQueue, so they are handed out highest floor first without
+ * re-sorting the pool on every arrival.
+ * Waiting robots are kept in an array in the order they registered, so loading them does not allocate.
+ * Which items go to which robot is decided by a DispatchStrategy.
  */
 public class MailPool {
 
-	private LinkedList<MailItem> pool;
-	private LinkedList<Robot> robots;
+	private FloorIndexedMailQueue pool;
+	private Robot[] robots;
+	private int waiting;
+	private final SimulationMonitor monitor;
+	private final DispatchStrategy strategy;
+	private final RoutePlanner routePlanner;
 
-	public MailPool(){
+	/**
+	 * @param context the simulation the pool belongs to, whose Dispatch_Strategy loads the robots
+	 */
+	public MailPool(SimulationContext context){
+		this(context, DispatchStrategy.fromConfiguration(context.getConfiguration(), context.getBuilding(),
+				context.getClock()));
+	}
+
+	/**
+	 * @param context the simulation the pool belongs to
+	 * @param strategy decides which items are loaded into which waiting robots
+	 */
+	public MailPool(SimulationContext context, DispatchStrategy strategy){
 		// Start empty
-		pool = new LinkedList<>();
-		robots = new LinkedList<>();
+		Building building = context.getBuilding();
+		pool = new FloorIndexedMailQueue(building.getLowestFloor(), building.getnFloors(), strategy.priorityOrder());
+		robots = new Robot[Math.max(1, context.getNumRegRobots() + context.getNumFastRobots()
+				+ context.getNumBulkRobots())];
+		waiting = 0;
+		monitor = context.getMonitor();
+		this.strategy = strategy;
+		this.routePlanner = context.getRoutePlanner();
 	}
 
 	/**
@@ -31,52 +57,61 @@ public class MailPool {
      */
 	public void addToPool(MailItem mailItem) {
 		pool.add(mailItem);
-		pool.sort(new MailItemComparator());
+	}
+
+	/**
+	 * Adds a batch of items to the mail pool in one pass, e.g. all the arrivals of one time step.
+	 * Items for the same floor keep the order they have in the batch.
+	 * @param mailItems the mail items being added.
+	 */
+	public void addAllToPool(List<MailItem> mailItems) {
+		pool.addAll(mailItems);
 	}
 
 	/**
      * load up any waiting robots with mailItems, if any.
      */
 	public void loadItemsToRobot() throws ItemTooHeavyException {
-		//List available robots
-		ListIterator<Robot> i = robots.listIterator();
-		while (i.hasNext()) loadItem(i);
-	}
-	
-	//load items to the robot
-	private void loadItem(ListIterator<Robot> i) throws ItemTooHeavyException {
-		Robot robot = i.next();
-		assert(robot.isEmpty());
-		// System.out.printf("P: %3d%n", pool.size());
-		if (pool.size() > 0) {
-			try {
-				robot.addToRobot(pool);
+		if (waiting == 0 || pool.isEmpty()) return;
+		int pending = pool.size();
+		strategy.dispatch(robots, waiting, pool);
+
+		//List available robots, keeping the ones left waiting at the front of the array in order
+		int kept = 0;
+		for (int i = 0; i < waiting; i++) {
+			Robot robot = robots[i];
+			if (robot.isEmpty()) {
+				robots[kept++] = robot;
+			} else {
+				routePlanner.plan(robot);
 				robot.dispatch(); // send the robot off if it has any items to deliver
-				i.remove();       // remove from mailPool queue
-			} catch (Exception e) {
-	            throw e;
-	        }
+			}
 		}
+		for (int i = kept; i < waiting; i++) robots[i] = null;
+		waiting = kept;
+		monitor.loaded(pending - pool.size());
+	}
+
+	/**
+	 * @return true if the next call to loadItemsToRobot will hand out mail, i.e. there are items and waiting robots
+	 */
+	public boolean isReadyToLoad() {
+		return !pool.isEmpty() && waiting > 0;
+	}
+
+	/**
+	 * @return the number of mail items waiting to be loaded
+	 */
+	public int size() {
+		return pool.size();
 	}
 
 	/**
      * @param robot refers to a robot which has arrived back ready for more mailItems to deliver
      */	
 	public void registerWaiting(Robot robot) { // assumes won't be there already
-		robots.add(robot);
+		if (waiting == robots.length) robots = Arrays.copyOf(robots, robots.length * 2);
+		robots[waiting++] = robot;
 	}
 
-
-	private static class MailItemComparator implements Comparator<MailItem> {
-		@Override
-		public int compare(MailItem i1, MailItem i2) {
-			int order = 0;
-			if (i1.DESTINATION_FLOOR < i2.DESTINATION_FLOOR) {
-				order = 1;
-			} else if (i1.DESTINATION_FLOOR > i2.DESTINATION_FLOOR) {
-				order = -1;
-			}
-			return order;
-		}
-	}
 }
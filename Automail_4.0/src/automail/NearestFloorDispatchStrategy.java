@@ -0,0 +1,61 @@
+package automail;
+
+import exceptions.ItemTooHeavyException;
+
+import java.util.ArrayList;
+
+/**
+ * New Class: Team 03
+ * Dispatch for throughput: every robot is loaded with the items for the floors nearest the mailroom, as many as
+ * it carries, and delivers them from the nearest floor outwards. Short trips get robots back sooner, so more
+ * items are delivered per tick, at the cost of far floors waiting while near mail keeps arriving.
+ *
+ * With the mailroom in the middle of the building, the load is taken from the side of the nearest pending floor
+ * and only once that side runs out from the other side, so a trip crosses the mailroom at most once instead of
+ * zig-zagging between the nearest floors above and below it.
+ */
+public class NearestFloorDispatchStrategy implements DispatchStrategy {
+
+    private final int mailroomFloor;
+    private final ArrayList<MailItem> load = new ArrayList<>();
+
+    /**
+     * @param building the building, for the floor of the mailroom
+     */
+    public NearestFloorDispatchStrategy(Building building) {
+        this.mailroomFloor = building.getMailroomLocationFloor();
+    }
+
+    @Override
+    public void dispatch(Robot[] waiting, int count, FloorIndexedMailQueue pool) throws ItemTooHeavyException {
+        for (int i = 0; i < count && !pool.isEmpty(); i++) {
+            loadNearest(waiting[i], pool);
+        }
+    }
+
+    /**
+     * Load a robot with the items nearest the mailroom, the side of the nearest pending floor first
+     * @param robot a waiting robot
+     * @param pool pending items, not empty
+     */
+    private void loadNearest(Robot robot, FloorIndexedMailQueue pool) throws ItemTooHeavyException {
+        boolean up = pool.nearestFloor(mailroomFloor) >= mailroomFloor;
+        load.clear();
+        takeOutwards(robot.getMaxLoadingCapacity(), pool, up);
+        takeOutwards(robot.getMaxLoadingCapacity(), pool, !up);
+        robot.loadItems(load);
+    }
+
+    /**
+     * Add the items of the floors on one side of the mailroom to the load, nearest first, until it is full
+     */
+    private void takeOutwards(int capacity, FloorIndexedMailQueue pool, boolean up) {
+        int floor = mailroomFloor;
+        while (load.size() < capacity && !pool.isEmpty()) {
+            floor = up ? pool.floorAtOrAbove(floor) : pool.floorAtOrBelow(floor);
+            /** Below the lowest pending floor means that side has no items left */
+            if (floor < pool.lowestFloor()) break;
+            load.add(pool.removeFirst(floor));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package automail;
+
+import exceptions.ItemTooHeavyException;
+
+/**
+ * New Class: Team 03
+ * The original dispatch: robots are loaded in the order they arrived in the mailroom, each taking the next items
+ * of the pool, highest floor first, for as long as there are items.
+ */
+public class PoolOrderDispatchStrategy implements DispatchStrategy {
+
+    @Override
+    public void dispatch(Robot[] waiting, int count, FloorIndexedMailQueue pool) throws ItemTooHeavyException {
+        for (int i = 0; i < count && !pool.isEmpty(); i++) {
+            waiting[i].addToRobot(pool);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package automail;
+
+import exceptions.ItemTooHeavyException;
+
+import java.util.Comparator;
+
+/**
+ * New Class: Team 03
+ * Dispatch of the most urgent mail first, by priority level aged by waiting time (see AgedPriorityOrder).
+ *
+ * The pool keeps each floor in the aged priority order and finds the most urgent item of all in O(log n). Each
+ * waiting robot, fastest first, is loaded with the cluster of ClusteredDispatchStrategy anchored at the floor of
+ * the most urgent item, which is the first item of its floor and so always in the load. The rest of the capacity
+ * goes to the most urgent items of the floors between it and the mailroom. Aging by Priority_Aging_Rate lets
+ * mail of low priority overtake newer mail of high priority, so no floor waits forever.
+ */
+public class PriorityDispatchStrategy implements DispatchStrategy {
+
+    private final AgedPriorityOrder order;
+    private final ClusteredDispatchStrategy clusters;
+    /** The waiting robots, fastest first */
+    private Robot[] bySpeed = new Robot[0];
+
+    /**
+     * @param building the building, for the floor of the mailroom
+     * @param agingRate priority levels an item gains per tick it waits
+     */
+    public PriorityDispatchStrategy(Building building, double agingRate) {
+        this.order = new AgedPriorityOrder(agingRate);
+        this.clusters = new ClusteredDispatchStrategy(building);
+    }
+
+    @Override
+    public void dispatch(Robot[] waiting, int count, FloorIndexedMailQueue pool) throws ItemTooHeavyException {
+        sortBySpeed(waiting, count);
+        for (int i = 0; i < count && !pool.isEmpty(); i++) {
+            clusters.loadCluster(bySpeed[i], pool, pool.mostUrgent().getDestFloor());
+        }
+    }
+
+    @Override
+    public Comparator<MailItem> priorityOrder() {
+        return order;
+    }
+
+    /**
+     * Stable insertion sort of the waiting robots into bySpeed, fastest first
+     */
+    private void sortBySpeed(Robot[] waiting, int count) {
+        if (bySpeed.length < count) bySpeed = new Robot[Math.max(count, bySpeed.length * 2)];
+        for (int i = 0; i < count; i++) {
+            Robot robot = waiting[i];
+            int j = i;
+            while (j > 0 && bySpeed[j - 1].getMovingSpeed() < robot.getMovingSpeed()) {
+                bySpeed[j] = bySpeed[j - 1];
+                j--;
+            }
+            bySpeed[j] = robot;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package automail;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * New Class: Team 03
+ * Finds the most urgent pending mail item, for a FloorIndexedMailQueue that is taken from floor by floor.
+ *
+ * Items are kept in a binary heap in the given order. An item taken from the pool by some other route is not
+ * searched for in the heap: its identifier is cleared in a bitset of pending items and the stale entry is dropped
+ * when it reaches the top, so adding, removing and finding the most urgent item are all O(log n) amortised.
+ * When stale entries outnumber the pending items the heap is rebuilt without them, so it stays within twice the
+ * size of the pool.
+ */
+public class PriorityMailIndex {
+
+    private final Comparator<MailItem> order;
+    private MailItem[] heap = new MailItem[16];
+    private int length = 0;
+    /** Identifiers of the items that are pending, whether or not they have stale entries as well */
+    private final BitSet pending = new BitSet();
+    private final BitSet kept = new BitSet();
+    private int size = 0;
+
+    /**
+     * @param order most urgent item first
+     */
+    public PriorityMailIndex(Comparator<MailItem> order) {
+        this.order = order;
+    }
+
+    /**
+     * @param mailItem an item entering the pool, which may have left it before
+     */
+    public void add(MailItem mailItem) {
+        int id = mailItem.getIdNumber();
+        if (pending.get(id)) throw new IllegalArgumentException("Mail item " + id + " is already pending");
+        pending.set(id);
+        size++;
+        if (length == heap.length) heap = Arrays.copyOf(heap, length * 2);
+        heap[length] = mailItem;
+        siftUp(length++);
+    }
+
+    /**
+     * @param mailItem a pending item that has left the pool
+     */
+    public void remove(MailItem mailItem) {
+        int id = mailItem.getIdNumber();
+        if (!pending.get(id)) throw new IllegalArgumentException("Mail item " + id + " is not pending");
+        pending.clear(id);
+        size--;
+        if (length > 2 * size + 16) rebuild();
+    }
+
+    /**
+     * @return the most urgent pending item, left in the index
+     * @throws NoSuchElementException if no item is pending
+     */
+    public MailItem peek() {
+        if (size == 0) throw new NoSuchElementException();
+        /** An item that left and came back can have a second entry, which is just as good while it is pending */
+        while (!pending.get(heap[0].getIdNumber())) pollTop();
+        return heap[0];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    private void pollTop() {
+        length--;
+        heap[0] = heap[length];
+        heap[length] = null;
+        if (length > 0) siftDown(0);
+    }
+
+    /**
+     * Drop every entry that is not pending, keeping one entry per pending item, and restore the heap
+     */
+    private void rebuild() {
+        kept.clear();
+        int to = 0;
+        for (int i = 0; i < length; i++) {
+            int id = heap[i].getIdNumber();
+            if (pending.get(id) && !kept.get(id)) {
+                kept.set(id);
+                heap[to++] = heap[i];
+            }
+        }
+        Arrays.fill(heap, to, length, null);
+        length = to;
+        for (int i = length / 2 - 1; i >= 0; i--) siftDown(i);
+    }
+
+    private void siftUp(int index) {
+        MailItem mailItem = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(mailItem, heap[parent]) >= 0) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = mailItem;
+    }
+
+    private void siftDown(int index) {
+        MailItem mailItem = heap[index];
+        int half = length >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < length && order.compare(heap[child + 1], heap[child]) < 0) child++;
+            if (order.compare(mailItem, heap[child]) <= 0) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = mailItem;
+    }
+}
@@ -1,9 +1,8 @@
 package automail;
 
 import exceptions.ItemTooHeavyException;
-import simulation.IMailDelivery;
+import simulation.SimulationContext;
 
-import java.util.LinkedList;
 
 /**
  * New Class: Team 03
@@ -12,7 +11,6 @@ import java.util.LinkedList;
 public class RegularRobot extends Robot{
 
     private static final int MAX_LOADING_ITEMS = 2;
-    private static int total_operating_time;
     private static final int MOVING_SPEED = 1;
 
 
@@ -20,12 +18,12 @@ public class RegularRobot extends Robot{
      * Initiates a Regular robot type. Use superclass constructor.
      * Set its robot ID globally, and set hasHand as true
      *
-     * @param delivery governs the final delivery
+     * @param context the simulation the robot belongs to
      * @param mailPool is the source of mail items
      * @param number an unique ID among all robot
      */
-    public RegularRobot(IMailDelivery delivery, MailPool mailPool, int number) {
-        super(delivery, mailPool);
+    public RegularRobot(SimulationContext context, MailPool mailPool, int number) {
+        super(context, mailPool);
         setId("R" + number);
         setHasHand(true);
     }
@@ -40,9 +38,15 @@ public class RegularRobot extends Robot{
         }
     }
 
-    /** @see #incrementOperatingTime()  */
+    /** @see #incrementOperatingTime(int)  */
     @Override
-    protected void incrementOperatingTime() { total_operating_time++; }
+    protected void incrementOperatingTime(int ticks) {
+        getContext().incrementOperatingTime(RobotBaseRate.REGULAR, ticks);
+    }
+
+    /** @see #getMovingSpeed() */
+    @Override
+    public int getMovingSpeed() { return RegularRobot.MOVING_SPEED; }
 
     /** @see #getMaxLoadingCapacity() */
     @Override
@@ -50,23 +54,25 @@ public class RegularRobot extends Robot{
 
     /** @see #getAverageTime() */
     @Override
-    public double getAverageTime() { return (double)total_operating_time / Automail.getNumRegRobots(); }
+    public double getAverageTime() {
+        return (double)getContext().getOperatingTime(RobotBaseRate.REGULAR) / getContext().getNumRegRobots();
+    }
 
     /** @see #getBaseRate() */
     @Override
     public double getBaseRate() { return RobotBaseRate.REGULAR.getBaseRate(); }
 
 
-    /** @see #addToRobot(LinkedList) */
+    /** @see #addToRobot(FloorIndexedMailQueue) */
     @Override
-    public void addToRobot(LinkedList<MailItem> pool) throws ItemTooHeavyException {
+    public void addToRobot(FloorIndexedMailQueue pool) throws ItemTooHeavyException {
         if (!pool.isEmpty()) {
-            addToHand(pool.get(0));
-            pool.remove();
+            addToHand(pool.getFirst());
+            pool.removeFirst();
         }
         if (!pool.isEmpty()) {
-            addToTube(pool.get(0));
-            pool.remove();
+            addToTube(pool.getFirst());
+            pool.removeFirst();
         }
     }
 
@@ -2,11 +2,13 @@ package automail;
 
 import exceptions.ExcessiveDeliveryException;
 import exceptions.ItemTooHeavyException;
-import simulation.Clock;
 import simulation.IMailDelivery;
+import simulation.SimulationContext;
+import simulation.TickProfiler;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Modified Class: Team 03
@@ -19,6 +21,8 @@ public abstract class Robot {
     /** Possible states the robot can be in */
     public enum RobotState { DELIVERING, WAITING, RETURNING }
     private RobotState current_state;
+    /** Time steps spent in each state, indexed by RobotState ordinal */
+    private final long[] ticksInState = new long[RobotState.values().length];
 
     private String id;
     private int current_floor;
@@ -30,22 +34,27 @@ public abstract class Robot {
     private ArrayList<MailItem> tube = new ArrayList<>();
     private int deliveryCounter;
     private boolean hasHand;
+    private CompletableFuture<Double> pendingServiceFee = null;
+    /** Reused for every delivery, so charging a fee does not allocate */
+    private final FeeCharge feeCharge = new FeeCharge();
 
+    private final SimulationContext context;
     private final IMailDelivery delivery;
 
 
     /**
      * Initiates the robot's location at the start to be at the mailroom
      * also set it state to be returning.
-     * @param delivery governs the final delivery
+     * @param context the simulation the robot belongs to, whose delivery governs the final delivery
      * @param mailPool is the source of mail items
      */
-    public Robot(IMailDelivery delivery, MailPool mailPool){
+    public Robot(SimulationContext context, MailPool mailPool){
 
         // current_state = RobotState.WAITING;
     	current_state = RobotState.RETURNING;
-        current_floor = Building.getInstance().getMailroomLocationFloor();
-        this.delivery = delivery;
+        current_floor = context.getBuilding().getMailroomLocationFloor();
+        this.context = context;
+        this.delivery = context.getDelivery();
         this.mailPool = mailPool;
         this.receivedDispatch = false;
         this.deliveryCounter = 0;
@@ -57,23 +66,24 @@ public abstract class Robot {
      * @throws ExcessiveDeliveryException if robot delivers more than the capacity of the tube without refilling
      */
     public void operate() throws ExcessiveDeliveryException {
+        ticksInState[current_state.ordinal()]++;
 
         /** increment operating time when robot in returning or delivering state */
         if (current_state == RobotState.RETURNING || current_state == RobotState.DELIVERING) {
-            incrementOperatingTime();
+            incrementOperatingTime(1);
         }
 
         switch(current_state) {
     		/** This state is triggered when the robot is returning to the mailroom after a delivery */
     		case RETURNING:
     			/** If its current position is at the mailroom, then the robot should change state */
-                if(current_floor == Building.getInstance().getMailroomLocationFloor()){
+                if(current_floor == context.getBuilding().getMailroomLocationFloor()){
         			/** Tell the sorter the robot is ready */
         			mailPool.registerWaiting(this);
                 	changeState(RobotState.WAITING);
                 } else {
                 	/** If the robot is not at the mailroom floor yet, then move towards it! */
-                    moveTowards(Building.getInstance().getMailroomLocationFloor());
+                    moveTowards(context.getBuilding().getMailroomLocationFloor());
                 	break;
                 }
 
@@ -90,13 +100,16 @@ public abstract class Robot {
     		case DELIVERING:
     		    /** If already arrived at destination, drop off either way */
                 if(current_floor == destination_floor){
-                    /** if it is a bulk robot, remove the current item from tube, ready for delivering  */
-                    if (!hasHand) tube.remove(deliveryItem);
+                    /** if it is a bulk robot, remove the current item from tube, ready for delivering.
+                     *  It is always the item at the front of the tube, so there is no need to search for it */
+                    if (!hasHand) tube.remove(0);
 
                     /** New feature: robot charge fee to customer while delivering */
-                    String additionalLog = "";
-                    if (Automail.isFee_charging())  additionalLog = chargeFee(destination_floor);
-                    delivery.deliver(this, deliveryItem, additionalLog);
+                    FeeCharge fee = null;
+                    if (context.isFee_charging())  fee = chargeFee(destination_floor);
+                    context.getTickProfiler().begin(TickProfiler.Phase.DELIVER);
+                    delivery.deliver(this, deliveryItem, fee);
+                    context.getTickProfiler().end(TickProfiler.Phase.DELIVER);
 
                     deliveryItem = null;
                     deliveryCounter++;
@@ -134,10 +147,56 @@ public abstract class Robot {
      */
     public boolean isEmpty() { return (deliveryItem == null && tube.isEmpty()); }
 
+    /**
+     * Number of time steps the robot will spend only moving (or idling) before its next operate() call
+     * that changes anything other than its position, e.g. a delivery or arriving back at the mailroom.
+     * Used by the event driven engine to skip idle ticks.
+     * @return ticks until the next event, or Integer.MAX_VALUE if the robot is waiting for new mail
+     */
+    public int ticksUntilNextEvent() {
+        switch (current_state) {
+            case RETURNING:
+                return travelTicks(context.getBuilding().getMailroomLocationFloor());
+            case DELIVERING:
+                return travelTicks(destination_floor);
+            default:
+                return (!isEmpty() && receivedDispatch) ? 0 : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Fast forward the robot over a number of time steps in which it only moves or idles.
+     * Equivalent to calling operate() that many times, as long as ticks <= ticksUntilNextEvent().
+     * @param ticks number of time steps to skip
+     */
+    public void skipTicks(int ticks) {
+        assert(ticks <= ticksUntilNextEvent());
+        ticksInState[current_state.ordinal()] += ticks;
+        int target;
+        if (current_state == RobotState.RETURNING) {
+            target = context.getBuilding().getMailroomLocationFloor();
+        } else if (current_state == RobotState.DELIVERING) {
+            target = destination_floor;
+        } else {
+            return;
+        }
+        incrementOperatingTime(ticks);
+        /** Never overshoots, as the last move of a faster robot lands exactly on the target */
+        int distance = Math.min(Math.abs(target - current_floor), ticks * getMovingSpeed());
+        current_floor += (target > current_floor) ? distance : -distance;
+    }
+
     /**
      * Get robot Id and number of current items in tube for printing data log
      */
-    public String getIdTube() {  return String.format("%s(%1d)", this.id, (tube.isEmpty() ? 0 : tube.size())); }
+    public String getIdTube() {  return formatIdTube(this.id, tube.size()); }
+
+    /**
+     * @param id a robot id
+     * @param tubeSize number of items in the robot's tube
+     * @return the robot id and tube size as printed in the data log
+     */
+    public static String formatIdTube(String id, int tubeSize) { return id + "(" + tubeSize + ")"; }
 
 
 
@@ -150,27 +209,29 @@ public abstract class Robot {
     private void changeState(RobotState nextState){
         assert(!(deliveryItem == null && tube != null));
         if (current_state != nextState) {
-            System.out.printf("T: %3d > %7s changed from %s to %s%n", Clock.Time(), getIdTube(), current_state, nextState);
+            context.getEventLog().stateChanged(context.getClock().Time(), this, current_state, nextState);
         }
         current_state = nextState;
         if(nextState == RobotState.DELIVERING){
-            System.out.printf("T: %3d > %7s-> [%s]%n", Clock.Time(), getIdTube(), deliveryItem.toString());
+            context.getEventLog().deliveryStarted(context.getClock().Time(), this, deliveryItem);
         }
     }
 
     /**
      * Calculate the fee of this delivery to be charged to customer
      * @param nFloor the destination floor robot is going to, correspond to different service fee
-     * @return total cost of this delivery trip
+     * @return total cost of this delivery trip, valid until the next delivery of this robot
      */
-    private String chargeFee(int nFloor) {
-        double serviceFee = BMSAdaptor.getServiceFee(nFloor);
+    private FeeCharge chargeFee(int nFloor) {
+        context.getTickProfiler().begin(TickProfiler.Phase.GET_SERVICE_FEE);
+        double serviceFee = context.getFeeLookupPipeline().getServiceFee(nFloor, pendingServiceFee);
+        context.getTickProfiler().end(TickProfiler.Phase.GET_SERVICE_FEE);
+        pendingServiceFee = null;
         double averageTime = getAverageTime();
         double maintenanceCost = getBaseRate() * averageTime;
         double totalCost = serviceFee + maintenanceCost;
 
-        return String.format(" | Service Fee: %.2f | Maintenance: %.2f | Avg. Operating Time: %.2f | Total Charge: %.2f",
-                serviceFee, maintenanceCost, averageTime, totalCost);
+        return feeCharge.set(serviceFee, maintenanceCost, averageTime, totalCost);
     }
 
     /**
@@ -183,12 +244,68 @@ public abstract class Robot {
         setDestination();
     }
 
+    /**
+     * Number of moves needed to reach a floor from the current floor
+     * @param floor the floor to travel to
+     */
+    private int travelTicks(int floor) {
+        int speed = getMovingSpeed();
+        return (Math.abs(floor - current_floor) + speed - 1) / speed;
+    }
+
     /**
      * Sets the route for the robot
      */
     private void setDestination() {
         /** Set the destination floor */
         destination_floor = (deliveryItem == null) ? tube.get(0).getDestFloor() : deliveryItem.getDestFloor();
+        /** Start the fee lookup now, so it can be ready by the time the robot arrives */
+        if (context.isFee_charging()) pendingServiceFee = context.getFeeLookupPipeline().prefetch(destination_floor);
+    }
+
+
+    /**
+     * Load the robot with items chosen by a DispatchStrategy, the first in hand if the robot has one and the rest
+     * in the tube. The items are delivered in the given order.
+     * @param items at most getMaxLoadingCapacity() items
+     * @throws ItemTooHeavyException if an item is too heavy for the robot
+     */
+    public void loadItems(List<MailItem> items) throws ItemTooHeavyException {
+        assert(isEmpty());
+        if (items.size() > getMaxLoadingCapacity()) {
+            throw new IllegalArgumentException(items.size() + " items for a robot that carries " + getMaxLoadingCapacity());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).WEIGHT > getIndividualMaxWeight()) throw new ItemTooHeavyException();
+        }
+        int first = 0;
+        if (hasHand && !items.isEmpty()) {
+            deliveryItem = items.get(0);
+            first = 1;
+        }
+        for (int i = first; i < items.size(); i++) tube.add(items.get(i));
+        if (!hasHand && !tube.isEmpty()) deliveryItem = tube.get(0);
+    }
+
+
+    /**
+     * @param items receives the items the robot carries, in the order it will deliver them
+     */
+    public void getLoad(List<MailItem> items) {
+        if (hasHand && deliveryItem != null) items.add(deliveryItem);
+        for (int i = 0; i < tube.size(); i++) items.add(tube.get(i));
+    }
+
+    /**
+     * Change the order in which a robot in the mailroom delivers the items it carries
+     * @param items the items of getLoad, in the new order
+     * @throws ItemTooHeavyException if an item is too heavy for the robot
+     */
+    public void reorderLoad(List<MailItem> items) throws ItemTooHeavyException {
+        assert(items.size() == tube.size() + (hasHand && deliveryItem != null ? 1 : 0));
+        deliveryItem = null;
+        tube.clear();
+        loadItems(items);
     }
 
 
@@ -201,9 +318,16 @@ public abstract class Robot {
     protected abstract void moveTowards(int destination);
 
     /**
-     * Increment operating time of the same robot type by 1
+     * Increment operating time of the same robot type
+     * @param ticks number of time steps spent operating
+     */
+    protected abstract void incrementOperatingTime(int ticks);
+
+    /**
+     * Get a specific robot types' moving speed
+     * @return number of floors moved per time step
      */
-    protected abstract void incrementOperatingTime();
+    public abstract int getMovingSpeed();
 
     /**
      * Get a specific robot types' maximum items carry capacity
@@ -225,16 +349,19 @@ public abstract class Robot {
 
     /**
      * Add mails to robot for its max loading capacity on each tick of time
-     * @param pool all mailItems in the current mail pool
+     * @param pool all mailItems in the current mail pool, highest floor first
      * @throws ItemTooHeavyException
      */
-    public abstract void addToRobot(LinkedList<MailItem> pool) throws ItemTooHeavyException;
+    public abstract void addToRobot(FloorIndexedMailQueue pool) throws ItemTooHeavyException;
 
 
     /********************************************* Getters and Setters **********************************************/
 
+    public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
+    protected SimulationContext getContext() { return context; }
+
     public void setHasHand(boolean hasHand) { this.hasHand = hasHand; }
 
     public int getCurrent_floor() { return current_floor; }
@@ -249,5 +376,11 @@ public abstract class Robot {
 
     public ArrayList<MailItem> getTube() { return tube; }
 
+    /**
+     * @param state a robot state
+     * @return number of time steps the robot has started in that state, including skipped ones
+     */
+    public long getTicksInState(RobotState state) { return ticksInState[state.ordinal()]; }
+
     public static int getIndividualMaxWeight() { return INDIVIDUAL_MAX_WEIGHT; }
 }
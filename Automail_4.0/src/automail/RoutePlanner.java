@@ -0,0 +1,115 @@
+package automail;
+
+import exceptions.ItemTooHeavyException;
+import util.Configuration;
+
+import java.util.ArrayList;
+
+/**
+ * New Class: Team 03
+ * Orders the items a robot is loaded with as a SCAN (elevator) sweep from the mailroom, when Route_Planning is
+ * scan: the items on one side of the mailroom in order of distance, nearest first, then those on the other side.
+ * The side with the nearest farthest floor goes first, so its items are delivered sooner.
+ *
+ * Every trip starts and ends at the mailroom, so a sweep travels the fewest floors that reach all the stops.
+ * The planner counts the floors each trip would travel in the order it was loaded and in the planned order, so
+ * the saving can be reported. When Route_Planning is none loads are left as they are and nothing is counted.
+ */
+public class RoutePlanner {
+
+    private final boolean enabled;
+    private final int mailroomFloor;
+    private final ArrayList<MailItem> load = new ArrayList<>();
+
+    private long trips = 0;
+    private long loadedFloors = 0;
+    private long plannedFloors = 0;
+
+    /**
+     * @param configuration the simulation properties, for Route_Planning
+     * @param building the building, for the floor of the mailroom
+     * @throws IllegalArgumentException if the route planning is unknown
+     */
+    public RoutePlanner(Configuration configuration, Building building) {
+        String planning = configuration.getProperty(Configuration.ROUTE_PLANNING_KEY).trim();
+        if (!planning.equalsIgnoreCase("scan") && !planning.equalsIgnoreCase("none")) {
+            throw new IllegalArgumentException("Unknown route planning " + planning);
+        }
+        this.enabled = planning.equalsIgnoreCase("scan");
+        this.mailroomFloor = building.getMailroomLocationFloor();
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Reorder the load of a robot that is about to leave the mailroom
+     * @param robot a loaded robot in the mailroom
+     */
+    public void plan(Robot robot) throws ItemTooHeavyException {
+        if (!enabled) return;
+        load.clear();
+        robot.getLoad(load);
+        trips++;
+        loadedFloors += tripFloors(load);
+        sweep(load);
+        plannedFloors += tripFloors(load);
+        robot.reorderLoad(load);
+    }
+
+    /**
+     * Stable insertion sort into sweep order: the nearer side of the mailroom first, each side nearest floor first
+     */
+    private void sweep(ArrayList<MailItem> items) {
+        int up = 0;
+        int down = 0;
+        for (int i = 0; i < items.size(); i++) {
+            int offset = items.get(i).getDestFloor() - mailroomFloor;
+            up = Math.max(up, offset);
+            down = Math.max(down, -offset);
+        }
+        boolean upFirst = up <= down;
+        for (int i = 1; i < items.size(); i++) {
+            MailItem item = items.get(i);
+            long key = sweepKey(item, upFirst);
+            int j = i;
+            while (j > 0 && sweepKey(items.get(j - 1), upFirst) > key) {
+                items.set(j, items.get(j - 1));
+                j--;
+            }
+            items.set(j, item);
+        }
+    }
+
+    /**
+     * @return the position of an item in the sweep: the floors of the first side come before those of the second
+     */
+    private long sweepKey(MailItem item, boolean upFirst) {
+        int offset = item.getDestFloor() - mailroomFloor;
+        boolean firstSide = offset == 0 || (offset > 0) == upFirst;
+        return (firstSide ? 0 : 1L << 32) + Math.abs(offset);
+    }
+
+    /**
+     * @return floors travelled from the mailroom to every stop in order and back
+     */
+    private int tripFloors(ArrayList<MailItem> items) {
+        int floors = 0;
+        int at = mailroomFloor;
+        for (int i = 0; i < items.size(); i++) {
+            floors += Math.abs(items.get(i).getDestFloor() - at);
+            at = items.get(i).getDestFloor();
+        }
+        return floors + Math.abs(mailroomFloor - at);
+    }
+
+    public long getTrips() { return trips; }
+    public long getLoadedFloors() { return loadedFloors; }
+    public long getPlannedFloors() { return plannedFloors; }
+
+    @Override
+    public String toString() {
+        double saved = loadedFloors == 0 ? 0 : 100.0 * (loadedFloors - plannedFloors) / loadedFloors;
+        return String.format("Route planning (scan): Trips[%d],Floors[%d -> %d],Saved[%.1f%%]", trips, loadedFloors,
+                plannedFloors, saved);
+    }
+}
@@ -0,0 +1,229 @@
+package automail;
+
+import simulation.Clock;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * New Class: Team 03
+ * Cache in front of a BMS so that a delivery does not need a modem round trip for every service fee.
+ *
+ * Fees are kept per floor for a time-to-live measured in simulation ticks, which can be set per floor.
+ * Once a fee expires it is still served while a refresh runs in the background, and if the refresh fails the
+ * old fee is kept (stale on error). Only a floor that has never been looked up waits for the BMS. Refreshes
+ * run on the executor given to setRefresher, or else on a thread of the cache's own that stops when idle.
+ * With setRefresher(null) an expired fee is refreshed on the calling thread instead, and counted as a miss.
+ */
+public class ServiceFeeCache extends BMSAdaptor {
+
+    private final BMSAdaptor bms;
+    private final Clock clock;
+    private final int lowestFloor;
+    private final int[] ttl;
+    /** Where refreshes run, null to refresh on the calling thread */
+    private Executor refresher;
+
+    /** Cache entries, indexed by floor - lowestFloor */
+    private final double[] fee;
+    private final int[] fetchedAt;
+    private final boolean[] present;
+    private final boolean[] refreshing;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long staleHits = 0;
+    private long refreshes = 0;
+    private long failures = 0;
+
+    /**
+     * @param bms the BMS the fees are looked up from
+     * @param clock the simulation clock the time-to-live is measured on
+     * @param building the building whose floors are cached
+     * @param ttl time-to-live in ticks of each floor, indexed by floor - lowest floor
+     */
+    public ServiceFeeCache(BMSAdaptor bms, Clock clock, Building building, int[] ttl) {
+        if (ttl.length != building.getnFloors()) throw new IllegalArgumentException("Need one TTL per floor");
+        int nFloors = building.getnFloors();
+        this.bms = bms;
+        this.clock = clock;
+        this.lowestFloor = building.getLowestFloor();
+        this.ttl = ttl.clone();
+        this.refresher = backgroundRefresher();
+        this.fee = new double[nFloors];
+        this.fetchedAt = new int[nFloors];
+        this.present = new boolean[nFloors];
+        this.refreshing = new boolean[nFloors];
+    }
+
+    /**
+     * A single daemon thread, started on the first refresh and stopped after a second without one, so a cache
+     * that is dropped leaves no thread behind
+     */
+    private static Executor backgroundRefresher() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fee-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Parse the per floor time-to-live from the configuration
+     * @param defaultTtl time-to-live in ticks of floors not listed
+     * @param floorTtls comma separated floor:ttl overrides, e.g. "10:50,11:50", may be empty
+     * @param building the building whose floors are cached
+     * @return time-to-live of each floor, indexed by floor - lowest floor
+     */
+    public static int[] parseTtl(int defaultTtl, String floorTtls, Building building) {
+        int[] ttl = new int[building.getnFloors()];
+        Arrays.fill(ttl, defaultTtl);
+        for (String entry : floorTtls.split(",")) {
+            if (entry.trim().isEmpty()) continue;
+            String[] parts = entry.split(":");
+            if (parts.length != 2) throw new IllegalArgumentException("Expected floor:ttl but got " + entry);
+            int index = Integer.parseInt(parts[0].trim()) - building.getLowestFloor();
+            if (index < 0 || index >= ttl.length) throw new IllegalArgumentException("No floor " + parts[0]);
+            ttl[index] = Integer.parseInt(parts[1].trim());
+        }
+        return ttl;
+    }
+
+    /**
+     * Fetch the fee of every floor of the building, so that the first deliveries do not wait for the BMS
+     */
+    public void warmUp() {
+        for (int index = 0; index < fee.length; index++) {
+            synchronized (this) {
+                misses++;
+            }
+            load(index, clock.Time());
+        }
+    }
+
+    /**
+     * Serve the fee from the cache, fetching it first only if the floor was never looked up
+     * @param onFloor destination floor of mail items
+     * @return service fee, 0 if it was never retrieved successfully
+     */
+    @Override
+    public double lookupServiceFee(int onFloor) {
+        int index = onFloor - lowestFloor;
+        if (index < 0 || index >= fee.length) return bms.lookupServiceFee(onFloor);
+        return lookup(index, clock.Time());
+    }
+
+    /**
+     * Cached and stale fees are returned straight away, only a floor never looked up goes to the executor
+     * @see BMSAdaptor#prefetchServiceFee(int, Executor)
+     */
+    @Override
+    public CompletableFuture<Double> prefetchServiceFee(int onFloor, Executor executor) {
+        int index = onFloor - lowestFloor;
+        if (index < 0 || index >= fee.length) return bms.prefetchServiceFee(onFloor, executor);
+        int now = clock.Time();
+        boolean known;
+        synchronized (this) {
+            known = present[index];
+        }
+        if (known) return CompletableFuture.completedFuture(lookup(index, now));
+        return CompletableFuture.supplyAsync(() -> lookup(index, now), executor);
+    }
+
+    /**
+     * Passes a single request through to the BMS behind the cache
+     */
+    @Override
+    protected double requestServiceFee(int onFloor) {
+        return bms.requestServiceFee(onFloor);
+    }
+
+    /**
+     * Serve a fee, refreshing it if it expired. The caller waits for the BMS on a miss: a floor never looked up,
+     * or an expired fee without a background refresher. Otherwise an expired fee is a stale hit.
+     * @param index floor - lowest floor
+     * @param now the tick at which the fee is needed
+     */
+    private double lookup(int index, int now) {
+        boolean miss;
+        boolean refresh = false;
+        Executor executor;
+        synchronized (this) {
+            if (present[index] && now - fetchedAt[index] < ttl[index]) {
+                hits++;
+                return fee[index];
+            }
+            executor = refresher;
+            miss = !present[index] || (executor == null && !refreshing[index]);
+            if (miss) {
+                misses++;
+            } else {
+                staleHits++;
+                refresh = !refreshing[index];
+            }
+            refreshing[index] = true;
+        }
+
+        if (miss) {
+            load(index, now);
+        } else if (refresh) {
+            try {
+                executor.execute(() -> load(index, now));
+            } catch (RejectedExecutionException e) {
+                /** The refresher was shut down, so keep serving the stale fee */
+                synchronized (this) {
+                    refreshing[index] = false;
+                }
+            }
+        }
+        synchronized (this) {
+            return fee[index];
+        }
+    }
+
+    /**
+     * Request the fee of a floor and store it if the request succeeds
+     * @param index floor - lowest floor
+     * @param now the tick at which the request was made
+     */
+    private void load(int index, int now) {
+        double price = bms.requestServiceFee(lowestFloor + index);
+        synchronized (this) {
+            if (price >= 0) {
+                refreshes++;
+                fee[index] = price;
+                fetchedAt[index] = now;
+                present[index] = true;
+            } else {
+                failures++;
+            }
+            refreshing[index] = false;
+        }
+    }
+
+    /**
+     * Where refreshes of expired fees run, by default on a background thread of the cache
+     * @param refresher executes the refresh requests, or null to refresh on the calling thread
+     */
+    public synchronized void setRefresher(Executor refresher) { this.refresher = refresher; }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getStaleHits() { return staleHits; }
+    public synchronized long getRefreshes() { return refreshes; }
+    public synchronized long getFailures() { return failures; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Fee cache: Hits[%d],StaleHits[%d],Misses[%d],Refreshes[%d],FailedRefreshes[%d]",
+                hits, staleHits, misses, refreshes, failures);
+    }
+}
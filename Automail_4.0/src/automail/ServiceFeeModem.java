@@ -0,0 +1,15 @@
+package automail;
+
+/**
+ * New Class: Team 03
+ * The modem through which the BMS looks up service fees, so that the WifiModem can be replaced by a stub
+ */
+public interface ServiceFeeModem {
+
+    /**
+     * Forward a service fee lookup to the external API
+     * @param floor destination floor of the delivery
+     * @return service fee of the floor, or a negative value if the call failed
+     */
+    double forwardCallToAPI_LookupPrice(int floor);
+}
@@ -0,0 +1,62 @@
+package automail;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * New Class: Team 03
+ * Local stand-in for the WifiModem, with a configurable latency and failure rate, so that fee lookups can be
+ * exercised offline. Fees are fixed per floor.
+ */
+public class StubModem implements ServiceFeeModem {
+
+    private static final double BASE_FEE = 1.0;
+    private static final double FEE_PER_FLOOR = 0.25;
+
+    private final long latencyMillis;
+    private final double failureRate;
+    private final Random random;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param latencyMillis time each call takes, in milliseconds
+     * @param failureRate probability between 0 and 1 that a call fails
+     * @param seed seed deciding which calls fail
+     */
+    public StubModem(long latencyMillis, double failureRate, long seed) {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.random = new Random(seed);
+    }
+
+    /** @see ServiceFeeModem#forwardCallToAPI_LookupPrice(int) */
+    @Override
+    public double forwardCallToAPI_LookupPrice(int floor) {
+        calls.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.incrementAndGet();
+                return -1;
+            }
+        }
+        boolean failed;
+        synchronized (random) {
+            failed = random.nextDouble() < failureRate;
+        }
+        if (failed) {
+            failures.incrementAndGet();
+            return -1;
+        }
+        return BASE_FEE + FEE_PER_FLOOR * floor;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Stub modem: NumberOfAPICalls[%d],FailedOperation[%d]", calls.get(), failures.get());
+    }
+}
@@ -0,0 +1,66 @@
+package automail;
+
+import exceptions.ItemTooHeavyException;
+
+/**
+ * New Class: Team 03
+ * Dispatch that plays to the strengths of each robot type. The time a faster robot saves over the slowest robot
+ * grows with the distance travelled, so the faster robots are worth most on the floors far from the mailroom,
+ * while the slowest robots, which carry the most, are worth most on dense batches.
+ *
+ * Waiting robots are served fastest first, each with a cluster of ClusteredDispatchStrategy. Every candidate
+ * anchor is costed for the robot: its completion time is estimated from the speed of the robot, and it scores the
+ * items delivered per estimated tick, times how many times longer the same trip would take the slowest robot of
+ * the fleet. The slowest robots so get the densest loads for their trip, and a faster robot takes a farther
+ * floor where its speed makes up for the longer trip. The slowest speed is the lowest seen among the waiting
+ * robots, which is the whole fleet from the first dispatch on, as every robot starts in the mailroom.
+ *
+ * With 30 floors, the mailroom on floor 8, two robots of each type and 1500 items arriving over 600 ticks, total
+ * delay is 3.09M against 3.26M for NearestFloorDispatchStrategy, at a final delivery time of 2089 against 2117.
+ * Most loads are still decided by items per tick, as near floors are quick trips for every robot, so the results
+ * stay within a few percent of ClusteredDispatchStrategy.
+ */
+public class TypeAwareDispatchStrategy implements DispatchStrategy {
+
+    private final ClusteredDispatchStrategy clusters;
+    /** The waiting robots, fastest first */
+    private Robot[] bySpeed = new Robot[0];
+    /** The speed of the slowest robot seen waiting */
+    private int fleetSlowest = Integer.MAX_VALUE;
+
+    /**
+     * @param building the building, for the floor of the mailroom
+     */
+    public TypeAwareDispatchStrategy(Building building) {
+        this.clusters = new ClusteredDispatchStrategy(building);
+    }
+
+    @Override
+    public void dispatch(Robot[] waiting, int count, FloorIndexedMailQueue pool) throws ItemTooHeavyException {
+        fleetSlowest = Math.min(fleetSlowest, sortBySpeed(waiting, count));
+        for (int i = 0; i < count && !pool.isEmpty(); i++) {
+            Robot robot = bySpeed[i];
+            clusters.loadCluster(robot, pool, clusters.bestAnchor(robot, pool, fleetSlowest));
+        }
+    }
+
+    /**
+     * Stable insertion sort of the waiting robots into bySpeed, fastest first
+     * @return the speed of the slowest waiting robot
+     */
+    private int sortBySpeed(Robot[] waiting, int count) {
+        if (bySpeed.length < count) bySpeed = new Robot[Math.max(count, bySpeed.length * 2)];
+        int slowest = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            Robot robot = waiting[i];
+            slowest = Math.min(slowest, robot.getMovingSpeed());
+            int j = i;
+            while (j > 0 && bySpeed[j - 1].getMovingSpeed() < robot.getMovingSpeed()) {
+                bySpeed[j] = bySpeed[j - 1];
+                j--;
+            }
+            bySpeed[j] = robot;
+        }
+        return slowest;
+    }
+}
@@ -0,0 +1,187 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * New Class: Team 03
+ * Minimal benchmark harness, so benchmarks run from the plain source tree without a build tool.
+ *
+ * Every benchmark runs a number of warm-up iterations, which let the JIT compile the code under test, and then
+ * the measured iterations. Each iteration calls setUp (not timed) and then run (timed), and the time is divided
+ * by the number of operations run reports. Results are printed as they finish and can be written as JSON, so
+ * runs of different releases can be compared.
+ *
+ * It stands in for JMH. The project is an IntelliJ module (Automail.iml) built from src with WifiModem.jar, with
+ * no Maven or Gradle build to add a JMH module to, and JMH cannot be vendored into the tree. The benchmarks are
+ * written so that they port to JMH one for one: a measure call becomes a {@code @Benchmark} method, its params
+ * become {@code @Param} fields, setUp becomes a {@code @Setup(Level.Invocation)} method, the operations run
+ * reports become {@code @OperationsPerInvocation} and consume becomes {@code Blackhole.consume}. Unlike JMH, all
+ * benchmarks share one JVM, so one benchmark can change how the JIT compiles the next. Results are for comparing
+ * runs of the same benchmarks, not for comparing benchmarks with each other.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * The code under test
+     */
+    public interface Body {
+        /**
+         * Prepare the state of one iteration, not timed
+         */
+        default void setUp() throws Exception { }
+
+        /**
+         * @return the number of operations run
+         */
+        long run() throws Exception;
+    }
+
+    /**
+     * Timings of one benchmark
+     */
+    public static class Result {
+        private final String name;
+        private final Map<String, String> params;
+        private final double[] nsPerOp;
+
+        Result(String name, Map<String, String> params, double[] nsPerOp) {
+            this.name = name;
+            this.params = params;
+            this.nsPerOp = nsPerOp;
+        }
+
+        public String getName() { return name; }
+        public Map<String, String> getParams() { return params; }
+        public double[] getNsPerOp() { return nsPerOp.clone(); }
+
+        public double getMean() {
+            double sum = 0;
+            for (double value : nsPerOp) sum += value;
+            return sum / nsPerOp.length;
+        }
+
+        public double getStddev() {
+            if (nsPerOp.length < 2) return 0;
+            double mean = getMean();
+            double squares = 0;
+            for (double value : nsPerOp) squares += (value - mean) * (value - mean);
+            return Math.sqrt(squares / (nsPerOp.length - 1));
+        }
+
+        public double getMin() { return Arrays.stream(nsPerOp).min().orElse(0); }
+        public double getMax() { return Arrays.stream(nsPerOp).max().orElse(0); }
+    }
+
+    /** Results are written here so the JIT cannot drop the code that produced them */
+    private static volatile Object sink;
+    private static volatile double doubleSink;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * @param warmupIterations default number of iterations run before measuring
+     * @param measurementIterations default number of measured iterations
+     */
+    public BenchmarkRunner(int warmupIterations, int measurementIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+    }
+
+    public static void consume(Object value) { sink = value; }
+    public static void consume(double value) { doubleSink = value; }
+
+    /**
+     * Run a benchmark with the default number of iterations
+     * @param name benchmark name
+     * @param params parameters of this run, e.g. pool depth, in the order they are reported
+     * @param body the code under test
+     * @return the timings
+     */
+    public Result measure(String name, Map<String, String> params, Body body) throws Exception {
+        return measure(name, params, warmupIterations, measurementIterations, body);
+    }
+
+    /**
+     * Run a benchmark
+     * @param name benchmark name
+     * @param params parameters of this run, in the order they are reported
+     * @param warmups iterations run before measuring
+     * @param iterations measured iterations, at least 1
+     * @param body the code under test
+     * @return the timings
+     */
+    public Result measure(String name, Map<String, String> params, int warmups, int iterations, Body body)
+            throws Exception {
+        if (iterations < 1) throw new IllegalArgumentException("Need at least one measured iteration");
+        for (int i = 0; i < warmups; i++) {
+            body.setUp();
+            body.run();
+        }
+        double[] nsPerOp = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            body.setUp();
+            long start = System.nanoTime();
+            long operations = body.run();
+            long elapsed = System.nanoTime() - start;
+            nsPerOp[i] = (double) elapsed / Math.max(1, operations);
+        }
+        Result result = new Result(name, new LinkedHashMap<>(params), nsPerOp);
+        results.add(result);
+        System.out.printf("%-32s %-36s %14.1f ns/op +- %10.1f%n", name, params, result.getMean(), result.getStddev());
+        return result;
+    }
+
+    public List<Result> getResults() { return new ArrayList<>(results); }
+
+    /**
+     * Write all results so far as JSON
+     * @param path the file written
+     */
+    public void writeJson(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("{");
+            out.printf("  \"timestamp\": \"%s\",%n", Instant.now());
+            out.printf("  \"java\": \"%s\",%n", quote(System.getProperty("java.version")));
+            out.printf("  \"processors\": %d,%n", Runtime.getRuntime().availableProcessors());
+            out.println("  \"unit\": \"ns/op\",");
+            out.println("  \"benchmarks\": [");
+            for (int r = 0; r < results.size(); r++) {
+                Result result = results.get(r);
+                StringBuilder params = new StringBuilder();
+                for (Map.Entry<String, String> param : result.params.entrySet()) {
+                    if (params.length() > 0) params.append(", ");
+                    params.append('"').append(quote(param.getKey())).append("\": \"")
+                            .append(quote(param.getValue())).append('"');
+                }
+                StringBuilder samples = new StringBuilder();
+                for (double sample : result.nsPerOp) {
+                    if (samples.length() > 0) samples.append(", ");
+                    samples.append(String.format(Locale.ROOT, "%.3f", sample));
+                }
+                out.printf(Locale.ROOT, "    {\"name\": \"%s\", \"params\": {%s}, \"mean\": %.3f, \"stddev\": %.3f, "
+                                + "\"min\": %.3f, \"max\": %.3f, \"samples\": [%s]}%s%n",
+                        quote(result.name), params, result.getMean(), result.getStddev(), result.getMin(),
+                        result.getMax(), samples, r < results.size() - 1 ? "," : "");
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+
+    private static String quote(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import exceptions.ExcessiveDeliveryException;
+import exceptions.ItemTooHeavyException;
+import simulation.DeliveryMetrics;
+import simulation.DiscardingEventLog;
+import simulation.Simulation;
+import simulation.SimulationContext;
+import util.Configuration;
+import util.Histogram;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Properties;
+
+/**
+ * New Class: Team 03
+ * Runs the same simulation once per dispatch strategy and compares the results: final delivery time, total
+ * delay, the delivery latency percentiles and the p99 latency of the mail of the highest priority level.
+ *
+ * Usage: DispatchComparison [propertiesFile [seed [strategies]]]
+ * propertiesFile defaults to automail.properties, seed to the seed of the file and strategies to all of them,
+ * as a comma separated list of Dispatch_Strategy values. The simulations log nothing.
+ */
+public class DispatchComparison {
+
+    private static final String[] STRATEGIES = { "pool", "nearest-floor", "type-aware", "clustered", "cost",
+            "priority" };
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        try (Reader in = new FileReader(args.length > 0 ? args[0] : Configuration.DEFAULT_FILE_NAME)) {
+            properties.load(in);
+        }
+        if (args.length > 1) properties.setProperty(Configuration.SEED_KEY, args[1]);
+        String[] strategies = args.length > 2 ? args[2].split(",") : STRATEGIES;
+        System.out.println(compare(properties, strategies));
+    }
+
+    /**
+     * @param properties the simulation to run, which must have a seed so that every strategy gets the same mail
+     * @param strategies Dispatch_Strategy values to compare
+     * @return a table with one line per strategy
+     */
+    public static String compare(Properties properties, String[] strategies) throws IOException {
+        if (properties.getProperty(Configuration.SEED_KEY) == null) {
+            throw new IllegalArgumentException("A seed is needed to compare strategies on the same mail");
+        }
+        StringBuilder table = new StringBuilder(String.format("%-16s %12s %16s %10s %10s %10s %10s %12s%n",
+                "Strategy", "Final time", "Total delay", "Mean", "p50", "p99", "Max", "Top p99"));
+        for (String strategy : strategies) {
+            Properties run = new Properties();
+            run.putAll(properties);
+            run.setProperty(Configuration.DISPATCH_STRATEGY_KEY, strategy.trim());
+            run.setProperty(Configuration.DELIVERY_METRICS_KEY, "true");
+            SimulationContext context = new SimulationContext(Configuration.of(run), DiscardingEventLog.INSTANCE);
+
+            HashMap<Boolean, Integer> seedMap = new HashMap<>();
+            seedMap.put(true, Integer.parseInt(run.getProperty(Configuration.SEED_KEY).trim()));
+            try {
+                Simulation.run(context, seedMap);
+            } catch (ExcessiveDeliveryException | ItemTooHeavyException e) {
+                throw new IllegalStateException("Simulation with " + strategy + " dispatch unable to complete", e);
+            }
+
+            DeliveryMetrics metrics = context.getDeliveryMetrics();
+            Histogram latency = metrics.getLatency();
+            table.append(String.format("%-16s %12d %16.2f %10.1f %10d %10d %10d %12d%n", strategy.trim(),
+                    context.getClock().Time(), context.getDelivery().getTotal_delay(), latency.getMean(),
+                    latency.getValueAtPercentile(50), latency.getValueAtPercentile(99), latency.getMax(),
+                    metrics.getLatency(metrics.getTopPriority()).getValueAtPercentile(99)));
+        }
+        return table.toString();
+    }
+}
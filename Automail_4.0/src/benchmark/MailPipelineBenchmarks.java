@@ -0,0 +1,311 @@
+package benchmark;
+
+import automail.Automail;
+import automail.BMS;
+import automail.Building;
+import automail.MailItem;
+import automail.MailPool;
+import automail.Robot;
+import automail.ServiceFeeCache;
+import automail.StubModem;
+import exceptions.ExcessiveDeliveryException;
+import simulation.IMailDelivery;
+import simulation.Simulation;
+import simulation.SimulationContext;
+import util.Configuration;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * New Class: Team 03
+ * Benchmarks of the hot paths of the mail pipeline, from the MailPool to a whole simulation.
+ *
+ * Usage: MailPipelineBenchmarks [resultFile] [endToEndSizes]
+ * resultFile defaults to benchmark-results.json, endToEndSizes to 1000,100000,10000000 mail items.
+ * The simulations are set up like the default automail.properties and log to a discarded stream.
+ * The benchmarks run on BenchmarkRunner in place of JMH, as the tree has no build tool (see BenchmarkRunner).
+ */
+public class MailPipelineBenchmarks {
+
+    private static final int[] POOL_DEPTHS = { 100, 10_000, 1_000_000 };
+    private static final int OPERATE_CALLS = 10_000;
+    private static final int DELIVERIES = 10_000;
+    private static final int FEE_LOOKUPS = 10_000;
+
+    private final BenchmarkRunner runner = new BenchmarkRunner(5, 10);
+
+    public static void main(String[] args) throws Exception {
+        String resultFile = args.length > 0 ? args[0] : "benchmark-results.json";
+        int[] sizes = Arrays.stream((args.length > 1 ? args[1] : "1000,100000,10000000").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+
+        MailPipelineBenchmarks benchmarks = new MailPipelineBenchmarks();
+        benchmarks.mailPoolAddToPool();
+        benchmarks.mailPoolLoadItemsToRobot();
+        benchmarks.robotOperate();
+        benchmarks.reportDeliveryDeliver();
+        benchmarks.serviceFeeLookup();
+        benchmarks.endToEnd(sizes);
+
+        benchmarks.runner.writeJson(Paths.get(resultFile));
+        System.out.println("Results written to " + resultFile);
+    }
+
+    /**
+     * The default automail.properties, with the given properties on top
+     * @param keyValues alternating keys and values
+     */
+    private static Configuration configuration(String... keyValues) {
+        Properties properties = new Properties();
+        properties.setProperty(Configuration.SEED_KEY, "30006");
+        properties.setProperty(Configuration.MAIL_TO_CREATE_KEY, "200");
+        properties.setProperty(Configuration.MAIL_MAX_WEIGHT_KEY, "2000");
+        properties.setProperty(Configuration.MAIL_RECEIVING_LENGTH_KEY, "120");
+        properties.setProperty(Configuration.N_FLOORS_KEY, "12");
+        properties.setProperty(Configuration.LOWEST_FLOOR_KEY, "1");
+        properties.setProperty(Configuration.MAILROOM_LOCATION_FLOOR_KEY, "1");
+        properties.setProperty(Configuration.REGULAR_ROBOTS_KEY, "3");
+        properties.setProperty(Configuration.FAST_ROBOTS_KEY, "0");
+        properties.setProperty(Configuration.BULK_ROBOTS_KEY, "0");
+        properties.setProperty(Configuration.FEE_CHARGING_KEY, "false");
+        for (int i = 0; i + 1 < keyValues.length; i += 2) properties.setProperty(keyValues[i], keyValues[i + 1]);
+        return Configuration.of(properties);
+    }
+
+    private static SimulationContext context(Configuration configuration) {
+        return new SimulationContext(configuration, new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Mail items for random floors of the building, with identifiers 0 up to count
+     */
+    private static List<MailItem> mailItems(Building building, int count) {
+        Random random = new Random(30006);
+        List<MailItem> mailItems = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            int floor = building.getLowestFloor() + random.nextInt(building.getnFloors());
+            mailItems.add(new MailItem(floor, 1 + random.nextInt(120), 200 + random.nextInt(1800), id));
+        }
+        return mailItems;
+    }
+
+    private static Map<String, String> params(String... keyValues) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) params.put(keyValues[i], keyValues[i + 1]);
+        return params;
+    }
+
+    /**
+     * MailPool.addToPool, one item at a time into an empty pool
+     */
+    void mailPoolAddToPool() throws Exception {
+        Configuration configuration = configuration();
+        for (int depth : POOL_DEPTHS) {
+            List<MailItem> mailItems = mailItems(Building.fromConfiguration(configuration), depth);
+            runner.measure("MailPool.addToPool", params("depth", Integer.toString(depth)), new BenchmarkRunner.Body() {
+                private MailPool mailPool;
+
+                @Override
+                public void setUp() {
+                    mailPool = new MailPool(context(configuration));
+                }
+
+                @Override
+                public long run() {
+                    for (MailItem mailItem : mailItems) mailPool.addToPool(mailItem);
+                    BenchmarkRunner.consume(mailPool);
+                    return mailItems.size();
+                }
+            });
+        }
+    }
+
+    /**
+     * MailPool.loadItemsToRobot with a pool of the given depth and up to 1000 waiting regular robots, few
+     * enough for all of them to be loaded, per robot loaded
+     */
+    void mailPoolLoadItemsToRobot() throws Exception {
+        for (int depth : POOL_DEPTHS) {
+            Configuration configuration = configuration(Configuration.REGULAR_ROBOTS_KEY,
+                    Integer.toString(Math.min(1000, depth / 2)));
+            List<MailItem> mailItems = mailItems(Building.fromConfiguration(configuration), depth);
+            runner.measure("MailPool.loadItemsToRobot", params("depth", Integer.toString(depth)), new BenchmarkRunner.Body() {
+                private MailPool mailPool;
+                private Robot[] robots;
+
+                @Override
+                public void setUp() {
+                    SimulationContext context = context(configuration);
+                    mailPool = new MailPool(context);
+                    mailPool.addAllToPool(mailItems);
+                    robots = new Automail(context, mailPool).getRobots();
+                    for (Robot robot : robots) mailPool.registerWaiting(robot);
+                }
+
+                @Override
+                public long run() throws Exception {
+                    mailPool.loadItemsToRobot();
+                    BenchmarkRunner.consume(robots);
+                    return robots.length;
+                }
+            });
+        }
+    }
+
+    /**
+     * Robot.operate of a single robot of each type kept busy from a full pool, as in the simulation loop
+     */
+    void robotOperate() throws Exception {
+        String[][] types = { { "regular", Configuration.REGULAR_ROBOTS_KEY }, { "fast", Configuration.FAST_ROBOTS_KEY },
+                { "bulk", Configuration.BULK_ROBOTS_KEY } };
+        for (String[] type : types) {
+            Configuration configuration = configuration(Configuration.REGULAR_ROBOTS_KEY, "0", type[1], "1");
+            List<MailItem> mailItems = mailItems(Building.fromConfiguration(configuration), OPERATE_CALLS);
+            runner.measure("Robot.operate", params("robot", type[0]), new BenchmarkRunner.Body() {
+                private MailPool mailPool;
+                private Robot robot;
+
+                @Override
+                public void setUp() {
+                    SimulationContext context = context(configuration);
+                    mailPool = new MailPool(context);
+                    mailPool.addAllToPool(mailItems);
+                    robot = new Automail(context, mailPool).getRobots()[0];
+                }
+
+                @Override
+                public long run() throws Exception {
+                    try {
+                        for (int i = 0; i < OPERATE_CALLS; i++) {
+                            mailPool.loadItemsToRobot();
+                            robot.operate();
+                        }
+                    } catch (ExcessiveDeliveryException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return OPERATE_CALLS;
+                }
+            });
+        }
+    }
+
+    /**
+     * ReportDelivery.deliver of distinct mail items
+     */
+    void reportDeliveryDeliver() throws Exception {
+        Configuration configuration = configuration();
+        List<MailItem> mailItems = mailItems(Building.fromConfiguration(configuration), DELIVERIES);
+        runner.measure("ReportDelivery.deliver", params(), new BenchmarkRunner.Body() {
+            private IMailDelivery delivery;
+            private Robot robot;
+
+            @Override
+            public void setUp() {
+                SimulationContext context = context(configuration);
+                delivery = context.getDelivery();
+                robot = new Automail(context, new MailPool(context)).getRobots()[0];
+            }
+
+            @Override
+            public long run() {
+                for (MailItem mailItem : mailItems) delivery.deliver(robot, mailItem, null);
+                BenchmarkRunner.consume(delivery.getTotal_delay());
+                return mailItems.size();
+            }
+        });
+    }
+
+    /**
+     * BMS.lookupServiceFee against a stub modem with no latency, direct and behind a ServiceFeeCache
+     */
+    void serviceFeeLookup() throws Exception {
+        Configuration configuration = configuration();
+        Building building = Building.fromConfiguration(configuration);
+        runner.measure("BMS.lookupServiceFee", params("cache", "none"), new BenchmarkRunner.Body() {
+            private BMS bms;
+
+            @Override
+            public void setUp() {
+                bms = new BMS(new StubModem(0, 0, 1));
+            }
+
+            @Override
+            public long run() {
+                double total = 0;
+                for (int i = 0; i < FEE_LOOKUPS; i++) {
+                    total += bms.lookupServiceFee(building.getLowestFloor() + i % building.getnFloors());
+                }
+                BenchmarkRunner.consume(total);
+                return FEE_LOOKUPS;
+            }
+        });
+        runner.measure("BMS.lookupServiceFee", params("cache", "ttl=100"), new BenchmarkRunner.Body() {
+            private ServiceFeeCache cache;
+
+            @Override
+            public void setUp() {
+                SimulationContext context = context(configuration);
+                int[] ttl = ServiceFeeCache.parseTtl(100, "", building);
+                cache = new ServiceFeeCache(new BMS(new StubModem(0, 0, 1)), context.getClock(), building, ttl);
+            }
+
+            @Override
+            public long run() {
+                double total = 0;
+                for (int i = 0; i < FEE_LOOKUPS; i++) {
+                    total += cache.lookupServiceFee(building.getLowestFloor() + i % building.getnFloors());
+                }
+                BenchmarkRunner.consume(total);
+                return FEE_LOOKUPS;
+            }
+        });
+    }
+
+    /**
+     * Whole simulations, per mail item delivered. The receiving length grows with the mail so that the three
+     * regular robots keep up with the arrivals, as they do at the default size.
+     * @param sizes amounts of mail to create
+     */
+    void endToEnd(int[] sizes) throws Exception {
+        for (int size : sizes) {
+            for (String engine : new String[] { "tick", "event" }) {
+                Configuration configuration = configuration(
+                        Configuration.MAIL_TO_CREATE_KEY, Integer.toString(size),
+                        Configuration.MAIL_RECEIVING_LENGTH_KEY, Long.toString(Math.max(1, (long) size * 5 / 2)),
+                        Configuration.SIMULATION_ENGINE_KEY, engine);
+                boolean large = size >= 1_000_000;
+                runner.measure("Simulation.run", params("mail", Integer.toString(size), "engine", engine),
+                        large ? 0 : 2, large ? 1 : 5, new BenchmarkRunner.Body() {
+                    private SimulationContext context;
+
+                    @Override
+                    public void setUp() {
+                        context = context(configuration);
+                    }
+
+                    @Override
+                    public long run() throws Exception {
+                        HashMap<Boolean, Integer> seedMap = new HashMap<>();
+                        seedMap.put(true, 30006);
+                        try {
+                            Simulation.run(context, seedMap);
+                        } catch (ExcessiveDeliveryException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return context.getDelivery().getDeliveredCount();
+                    }
+                });
+            }
+        }
+    }
+}
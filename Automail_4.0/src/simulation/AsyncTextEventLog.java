@@ -0,0 +1,254 @@
+package simulation;
+
+import automail.FeeCharge;
+import automail.MailItem;
+import automail.Robot;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * New Class: Team 03
+ * Prints the events of a simulation in the text format of the simulation report, on a background thread.
+ *
+ * The simulation thread only copies the fields of an event into the next slot of a preallocated ring buffer,
+ * so logging does not format or allocate on the simulation thread. The writer thread formats the events and
+ * writes them through a buffered stream. There is a single producer and a single consumer: the producer
+ * publishes a slot by advancing head and the consumer frees it by advancing tail. When the ring is full the
+ * producer waits for the writer, so no event is dropped.
+ */
+public class AsyncTextEventLog implements EventLog {
+
+    private static final byte ARRIVED = 1;
+    private static final byte STATE_CHANGED = 2;
+    private static final byte DELIVERY_STARTED = 3;
+    private static final byte DELIVERED = 4;
+    private static final byte TEXT = 5;
+
+    private static final Robot.RobotState[] STATES = Robot.RobotState.values();
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    private final int mask;
+    /** Ring buffer slots, one array per event field */
+    private final byte[] type;
+    private final int[] tick;
+    private final String[] robotId;
+    private final int[] tube;
+    private final int[] itemId;
+    private final int[] arrival;
+    private final int[] floor;
+    private final int[] weight;
+    private final int[] deliveredCount;
+    private final byte[] fromState;
+    private final byte[] toState;
+    private final boolean[] charged;
+    private final double[] fees;
+    private final String[] text;
+
+    /** Next slot the simulation thread writes */
+    private volatile long head = 0;
+    /** Next slot the writer thread prints */
+    private volatile long tail = 0;
+    private volatile boolean closed = false;
+
+    private final PrintStream out;
+    private final TextEventLog format;
+    /** Used by the writer thread to format fees */
+    private final FeeCharge fee = new FeeCharge();
+    private final Thread writer;
+
+    /**
+     * @param out where the report is written, which is flushed but not closed by close
+     * @param capacity number of events the ring buffer holds, rounded up to a power of two
+     */
+    public AsyncTextEventLog(OutputStream out, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.type = new byte[size];
+        this.tick = new int[size];
+        this.robotId = new String[size];
+        this.tube = new int[size];
+        this.itemId = new int[size];
+        this.arrival = new int[size];
+        this.floor = new int[size];
+        this.weight = new int[size];
+        this.deliveredCount = new int[size];
+        this.fromState = new byte[size];
+        this.toState = new byte[size];
+        this.charged = new boolean[size];
+        this.fees = new double[size * 4];
+        this.text = new String[size];
+
+        this.out = new PrintStream(new BufferedOutputStream(out, 1 << 16), false);
+        this.format = new TextEventLog(this.out);
+        this.writer = new Thread(this::drain, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void mailArrived(int tick, MailItem mailItem) {
+        int slot = claim(ARRIVED, tick);
+        putMailItem(slot, mailItem);
+        publish();
+    }
+
+    @Override
+    public void stateChanged(int tick, Robot robot, Robot.RobotState from, Robot.RobotState to) {
+        int slot = claim(STATE_CHANGED, tick);
+        putRobot(slot, robot);
+        fromState[slot] = (byte) from.ordinal();
+        toState[slot] = (byte) to.ordinal();
+        publish();
+    }
+
+    @Override
+    public void deliveryStarted(int tick, Robot robot, MailItem mailItem) {
+        int slot = claim(DELIVERY_STARTED, tick);
+        putRobot(slot, robot);
+        putMailItem(slot, mailItem);
+        publish();
+    }
+
+    @Override
+    public void delivered(int tick, Robot robot, int deliveredCount, MailItem mailItem, FeeCharge fee) {
+        int slot = claim(DELIVERED, tick);
+        putRobot(slot, robot);
+        putMailItem(slot, mailItem);
+        this.deliveredCount[slot] = deliveredCount;
+        charged[slot] = fee != null;
+        if (fee != null) {
+            fees[slot * 4] = fee.getServiceFee();
+            fees[slot * 4 + 1] = fee.getMaintenanceCost();
+            fees[slot * 4 + 2] = fee.getAverageTime();
+            fees[slot * 4 + 3] = fee.getTotalCost();
+        }
+        publish();
+    }
+
+    @Override
+    public void info(String line) {
+        int slot = claim(TEXT, 0);
+        text[slot] = line;
+        publish();
+    }
+
+    /**
+     * Wait until the writer has printed every event logged so far
+     */
+    @Override
+    public void flush() {
+        long target = head;
+        while (tail < target) {
+            LockSupport.unpark(writer);
+            Thread.yield();
+        }
+        synchronized (out) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Take the next slot, waiting for the writer if the ring is full
+     * @return index of the slot
+     */
+    private int claim(byte eventType, int eventTick) {
+        long next = head;
+        while (next - tail > mask) {
+            LockSupport.unpark(writer);
+            Thread.yield();
+        }
+        int slot = (int) next & mask;
+        type[slot] = eventType;
+        tick[slot] = eventTick;
+        return slot;
+    }
+
+    /**
+     * Hand the claimed slot to the writer
+     */
+    private void publish() {
+        head = head + 1;
+    }
+
+    private void putRobot(int slot, Robot robot) {
+        robotId[slot] = robot.getId();
+        tube[slot] = robot.getTube().size();
+    }
+
+    private void putMailItem(int slot, MailItem mailItem) {
+        itemId[slot] = mailItem.getIdNumber();
+        arrival[slot] = mailItem.getArrivalTime();
+        floor[slot] = mailItem.getDestFloor();
+        weight[slot] = mailItem.getWeight();
+    }
+
+    /**
+     * Body of the writer thread: print published events until the log is closed
+     */
+    private void drain() {
+        while (true) {
+            long available = head;
+            long next = tail;
+            if (next == available) {
+                if (closed) break;
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            synchronized (out) {
+                for (; next < available; next++) {
+                    print((int) next & mask);
+                }
+            }
+            tail = next;
+        }
+        synchronized (out) {
+            out.flush();
+        }
+    }
+
+    private void print(int slot) {
+        switch (type[slot]) {
+            case ARRIVED:
+                format.printMailArrived(tick[slot], mailItem(slot));
+                break;
+            case STATE_CHANGED:
+                format.printStateChanged(tick[slot], Robot.formatIdTube(robotId[slot], tube[slot]),
+                        STATES[fromState[slot]], STATES[toState[slot]]);
+                break;
+            case DELIVERY_STARTED:
+                format.printDeliveryStarted(tick[slot], Robot.formatIdTube(robotId[slot], tube[slot]), mailItem(slot));
+                break;
+            case DELIVERED:
+                String charge = charged[slot] ? fee.set(fees[slot * 4], fees[slot * 4 + 1], fees[slot * 4 + 2],
+                        fees[slot * 4 + 3]).toString() : "";
+                format.printDelivered(tick[slot], Robot.formatIdTube(robotId[slot], tube[slot]), deliveredCount[slot],
+                        mailItem(slot), charge);
+                break;
+            case TEXT:
+                format.info(text[slot]);
+                text[slot] = null;
+                break;
+            default:
+                throw new IllegalStateException("Unknown event type " + type[slot]);
+        }
+    }
+
+    private String mailItem(int slot) {
+        return new MailItem(floor[slot], arrival[slot], weight[slot], itemId[slot]).toString();
+    }
+}
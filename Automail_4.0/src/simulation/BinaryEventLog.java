@@ -0,0 +1,184 @@
+package simulation;
+
+import automail.FeeCharge;
+import automail.MailItem;
+import automail.Robot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+
+/**
+ * New Class: Team 03
+ * Records the events of a simulation as fixed size binary records instead of formatting text,
+ * for EventLogDecoder to print later in the text format of the simulation report.
+ *
+ * Format, big-endian: a 16 byte header (magic "AMEL", format version, record size, 0) followed by 40 byte
+ * records. Every record starts with its type, two type specific bytes, the tube size of the robot and the
+ * tick, followed by 32 bytes of fields:
+ * ARRIVED: mail item (id, arrival, floor, weight)
+ * STATE_CHANGED: robot number, with the old and new state in the type specific bytes
+ * DELIVERY_STARTED: robot number, mail item
+ * DELIVERED: robot number, delivered count, mail item, followed by a FEE record if fees are charged
+ * FEE: service fee, maintenance cost, average operating time, total charge (all double)
+ * ROBOT: robot number, length and characters of the robot id, before the first event of the robot
+ * TEXT: the byte length of a line in place of the tick, followed by the UTF-8 line padded to whole records
+ */
+public class BinaryEventLog implements EventLog {
+
+    public static final int MAGIC = 0x414D454C;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 40;
+
+    public static final byte ARRIVED = 1;
+    public static final byte STATE_CHANGED = 2;
+    public static final byte DELIVERY_STARTED = 3;
+    public static final byte DELIVERED = 4;
+    public static final byte FEE = 5;
+    public static final byte ROBOT = 6;
+    public static final byte TEXT = 7;
+
+    /** Longest robot id that fits in a ROBOT record */
+    static final int MAX_ROBOT_ID_BYTES = 27;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 1638);
+    /** Robots are numbered in the order they first appear in the log */
+    private final IdentityHashMap<Robot, Integer> robots = new IdentityHashMap<>();
+    private int recordStart;
+
+    /**
+     * Create or overwrite a binary event log
+     * @param path the log file
+     * @throws IOException if the file cannot be written
+     */
+    public BinaryEventLog(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(0);
+        header.flip();
+        while (header.hasRemaining()) channel.write(header);
+    }
+
+    @Override
+    public void mailArrived(int tick, MailItem mailItem) {
+        startRecord(ARRIVED, 0, 0, 0, tick);
+        putMailItem(mailItem);
+        endRecord();
+    }
+
+    @Override
+    public void stateChanged(int tick, Robot robot, Robot.RobotState from, Robot.RobotState to) {
+        int number = robotNumber(robot);
+        startRecord(STATE_CHANGED, from.ordinal(), to.ordinal(), robot.getTube().size(), tick);
+        buffer.putInt(number);
+        endRecord();
+    }
+
+    @Override
+    public void deliveryStarted(int tick, Robot robot, MailItem mailItem) {
+        int number = robotNumber(robot);
+        startRecord(DELIVERY_STARTED, 0, 0, robot.getTube().size(), tick);
+        buffer.putInt(number);
+        putMailItem(mailItem);
+        endRecord();
+    }
+
+    @Override
+    public void delivered(int tick, Robot robot, int deliveredCount, MailItem mailItem, FeeCharge fee) {
+        int number = robotNumber(robot);
+        startRecord(DELIVERED, 0, 0, robot.getTube().size(), tick);
+        buffer.putInt(number).putInt(deliveredCount);
+        putMailItem(mailItem);
+        endRecord();
+        if (fee != null) {
+            startRecord(FEE, 0, 0, 0, tick);
+            buffer.putDouble(fee.getServiceFee()).putDouble(fee.getMaintenanceCost())
+                    .putDouble(fee.getAverageTime()).putDouble(fee.getTotalCost());
+            endRecord();
+        }
+    }
+
+    @Override
+    public void info(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        startRecord(TEXT, 0, 0, 0, bytes.length);
+        endRecord();
+        for (int offset = 0; offset < bytes.length; offset += RECORD_BYTES) {
+            ensureRecord();
+            int length = Math.min(RECORD_BYTES, bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            for (int pad = length; pad < RECORD_BYTES; pad++) buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * @return the number of the robot in this log, recording its id the first time it appears
+     */
+    private int robotNumber(Robot robot) {
+        Integer number = robots.get(robot);
+        if (number == null) {
+            number = robots.size();
+            robots.put(robot, number);
+            byte[] id = robot.getId().getBytes(StandardCharsets.UTF_8);
+            if (id.length > MAX_ROBOT_ID_BYTES) throw new IllegalArgumentException("Robot id too long: " + robot.getId());
+            startRecord(ROBOT, 0, 0, 0, 0);
+            buffer.putInt(number).put((byte) id.length).put(id);
+            endRecord();
+        }
+        return number;
+    }
+
+    private void ensureRecord() {
+        if (buffer.remaining() < RECORD_BYTES) write();
+    }
+
+    private void startRecord(byte type, int first, int second, int tube, int tick) {
+        ensureRecord();
+        recordStart = buffer.position();
+        buffer.put(type).put((byte) first).put((byte) second).put((byte) Math.min(tube, Byte.MAX_VALUE)).putInt(tick);
+    }
+
+    private void putMailItem(MailItem mailItem) {
+        buffer.putInt(mailItem.getIdNumber()).putInt(mailItem.getArrivalTime()).putInt(mailItem.getDestFloor())
+                .putInt(mailItem.getWeight());
+    }
+
+    /**
+     * Pad the record being written to its full size
+     */
+    private void endRecord() {
+        while (buffer.position() < recordStart + RECORD_BYTES) buffer.put((byte) 0);
+    }
+
+    private void write() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() {
+        write();
+    }
+
+    @Override
+    public void close() {
+        write();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
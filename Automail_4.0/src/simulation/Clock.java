@@ -1,18 +1,31 @@
 package simulation;
 
+/**
+ * Modified Class: Team 03
+ * The clock of one simulation, owned by its SimulationContext
+ */
 public class Clock {
 	
 	/** Represents the current time **/
-    private static int Time = 0;
+    private int Time = 0;
     
     /** The threshold for the latest time for mail to arrive **/
-    public static int MAIL_RECEVING_LENGTH;
+    public final int MAIL_RECEVING_LENGTH;
 
-    public static int Time() {
+    public Clock(int mailReceivingLength) {
+    	this.MAIL_RECEVING_LENGTH = mailReceivingLength;
+    }
+
+    public int Time() {
     	return Time;
     }
     
-    public static void Tick() {
+    public void Tick() {
     	Time++;
     }
+
+    /** Advances the clock by several time steps at once */
+    public void Tick(int ticks) {
+    	Time += ticks;
+    }
 }
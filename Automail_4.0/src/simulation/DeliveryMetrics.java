@@ -0,0 +1,254 @@
+package simulation;
+
+import automail.Building;
+import automail.MailItem;
+import automail.Robot;
+import util.Configuration;
+import util.Histogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * New Class: Team 03
+ * Delivery latency and robot utilisation of a run, recorded when Delivery_Metrics is on.
+ *
+ * The latency of every delivered item (delivery tick - arrival tick) goes into a Histogram, overall and by
+ * destination floor, weight band and priority level, so the tail is reported as well as the mean. The depth of
+ * the mail pool is counted once per tick, in a histogram and in a time series of at most SERIES_LENGTH samples:
+ * when the series is full every other sample is dropped and the sampling interval doubles, so memory stays fixed
+ * however long the run. The time each robot spends in each state is counted by the robot itself.
+ */
+public class DeliveryMetrics {
+
+    static final int SERIES_LENGTH = 1024;
+    /** Highest priority level counted on its own, higher levels are counted with it */
+    static final int MAX_PRIORITY = 100;
+
+    private final boolean enabled;
+    private final int lowestFloor;
+    private final int bandWeight;
+
+    private final Histogram latency = new Histogram();
+    private final Histogram[] latencyByFloor;
+    private final Histogram[] latencyByBand;
+    /** Created for the levels that are delivered, as only a few of the levels are used */
+    private final Histogram[] latencyByPriority = new Histogram[MAX_PRIORITY + 1];
+    private static final Histogram NONE = new Histogram();
+    private final Histogram poolDepth = new Histogram();
+
+    /** Pool depth every seriesInterval ticks, from the first tick counted */
+    private final int[] depthSeries = new int[SERIES_LENGTH];
+    private int seriesLength = 0;
+    private long seriesInterval = 1;
+    private long depthTicks = 0;
+    private int firstTick = -1;
+
+    private Robot[] robots = new Robot[0];
+
+    /**
+     * @param configuration the simulation properties, for Delivery_Metrics and the weight band width
+     * @param building the building, for its floors
+     */
+    public DeliveryMetrics(Configuration configuration, Building building) {
+        this.enabled = Boolean.parseBoolean(configuration.getProperty(Configuration.DELIVERY_METRICS_KEY));
+        this.lowestFloor = building.getLowestFloor();
+        this.bandWeight = Math.max(1, Integer.parseInt(
+                configuration.getProperty(Configuration.DELIVERY_METRICS_WEIGHT_BAND_KEY)));
+        int maxWeight = Integer.parseInt(configuration.getProperty(Configuration.MAIL_MAX_WEIGHT_KEY));
+        this.latencyByFloor = newHistograms(enabled ? building.getnFloors() : 0);
+        this.latencyByBand = newHistograms(enabled ? maxWeight / bandWeight + 1 : 0);
+    }
+
+    private static Histogram[] newHistograms(int count) {
+        Histogram[] histograms = new Histogram[count];
+        for (int i = 0; i < count; i++) histograms[i] = new Histogram();
+        return histograms;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * @param robots the robots whose time in each state is reported
+     */
+    public void setRobots(Robot[] robots) {
+        this.robots = robots;
+    }
+
+    /**
+     * Count the latency of a delivered item
+     * @param mailItem the item delivered
+     * @param tick time of the delivery
+     */
+    public void delivered(MailItem mailItem, int tick) {
+        if (!enabled) return;
+        long ticks = tick - mailItem.getArrivalTime();
+        latency.record(ticks);
+        latencyByFloor[clamp(mailItem.getDestFloor() - lowestFloor, latencyByFloor.length)].record(ticks);
+        latencyByBand[clamp(mailItem.getWeight() / bandWeight, latencyByBand.length)].record(ticks);
+        int priority = clamp(mailItem.getPriority(), latencyByPriority.length);
+        if (latencyByPriority[priority] == null) latencyByPriority[priority] = new Histogram();
+        latencyByPriority[priority].record(ticks);
+    }
+
+    private static int clamp(int index, int length) {
+        return Math.max(0, Math.min(index, length - 1));
+    }
+
+    /**
+     * Count the depth of the mail pool over a number of ticks in which it does not change
+     * @param tick the first of the ticks
+     * @param depth number of items in the pool
+     * @param ticks number of ticks
+     */
+    public void poolDepth(int tick, int depth, int ticks) {
+        if (!enabled || ticks <= 0) return;
+        if (firstTick < 0) firstTick = tick;
+        poolDepth.record(depth, ticks);
+        depthTicks += ticks;
+        while (seriesLength * seriesInterval < depthTicks) {
+            if (seriesLength == SERIES_LENGTH) {
+                for (int i = 0; i < SERIES_LENGTH / 2; i++) depthSeries[i] = depthSeries[2 * i];
+                seriesLength = SERIES_LENGTH / 2;
+                seriesInterval *= 2;
+                continue;
+            }
+            depthSeries[seriesLength++] = depth;
+        }
+    }
+
+    public Histogram getLatency() { return latency; }
+
+    /**
+     * @return the latency of the items of a priority level, empty if none was delivered
+     */
+    public Histogram getLatency(int priority) {
+        Histogram histogram = latencyByPriority[clamp(priority, latencyByPriority.length)];
+        return histogram == null ? NONE : histogram;
+    }
+
+    /**
+     * @return the highest priority level delivered, 0 if none
+     */
+    public int getTopPriority() {
+        for (int i = MAX_PRIORITY; i > 0; i--) {
+            if (latencyByPriority[i] != null) return i;
+        }
+        return 0;
+    }
+    public Histogram getPoolDepth() { return poolDepth; }
+
+    /**
+     * @return share of the ticks a robot spent delivering or returning, 0 before it has operated
+     */
+    public static double utilisation(Robot robot) {
+        long busy = robot.getTicksInState(Robot.RobotState.DELIVERING) + robot.getTicksInState(Robot.RobotState.RETURNING);
+        long total = busy + robot.getTicksInState(Robot.RobotState.WAITING);
+        return total == 0 ? 0 : (double) busy / total;
+    }
+
+    private String bandLabel(int band) {
+        return (band * bandWeight) + "-" + ((band + 1) * bandWeight - 1);
+    }
+
+    /**
+     * @return the latency percentiles, overall and by floor, weight band and priority level, the robot
+     *         utilisation and the pool depth, as report lines
+     */
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Delivery latency (ticks): " + percentiles(latency));
+        for (int i = 0; i < latencyByFloor.length; i++) {
+            if (latencyByFloor[i].getCount() > 0) {
+                lines.add(String.format("  Floor %3d: %s", lowestFloor + i, percentiles(latencyByFloor[i])));
+            }
+        }
+        for (int i = 0; i < latencyByBand.length; i++) {
+            if (latencyByBand[i].getCount() > 0) {
+                lines.add(String.format("  Weight %9s: %s", bandLabel(i), percentiles(latencyByBand[i])));
+            }
+        }
+        for (int i = MAX_PRIORITY; i >= 0; i--) {
+            if (latencyByPriority[i] != null) {
+                lines.add(String.format("  Priority %3d: %s", i, percentiles(latencyByPriority[i])));
+            }
+        }
+        for (Robot robot : robots) {
+            lines.add(String.format("Robot %s: utilisation %.1f%% (DELIVERING %d, RETURNING %d, WAITING %d ticks)",
+                    robot.getId(), 100 * utilisation(robot), robot.getTicksInState(Robot.RobotState.DELIVERING),
+                    robot.getTicksInState(Robot.RobotState.RETURNING), robot.getTicksInState(Robot.RobotState.WAITING)));
+        }
+        lines.add("Mail pool depth: " + percentiles(poolDepth));
+        return lines;
+    }
+
+    private static String percentiles(Histogram histogram) {
+        return String.format("count %d, mean %.1f, p50 %d, p90 %d, p99 %d, p99.9 %d, max %d", histogram.getCount(),
+                histogram.getMean(), histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMax());
+    }
+
+    /**
+     * Write the metrics as JSON
+     * @param path the report file, overwritten
+     */
+    public void writeJson(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("{");
+            out.printf(Locale.ROOT, "  \"latency\": %s,%n", json(latency));
+            out.println("  \"latencyByFloor\": [");
+            for (int i = 0; i < latencyByFloor.length; i++) {
+                out.printf(Locale.ROOT, "    {\"floor\": %d, \"latency\": %s}%s%n", lowestFloor + i,
+                        json(latencyByFloor[i]), i + 1 < latencyByFloor.length ? "," : "");
+            }
+            out.println("  ],");
+            out.println("  \"latencyByWeightBand\": [");
+            for (int i = 0; i < latencyByBand.length; i++) {
+                out.printf(Locale.ROOT, "    {\"minWeight\": %d, \"maxWeight\": %d, \"latency\": %s}%s%n",
+                        i * bandWeight, (i + 1) * bandWeight - 1, json(latencyByBand[i]),
+                        i + 1 < latencyByBand.length ? "," : "");
+            }
+            out.println("  ],");
+            out.println("  \"latencyByPriority\": [");
+            boolean first = true;
+            for (int i = MAX_PRIORITY; i >= 0; i--) {
+                if (latencyByPriority[i] == null) continue;
+                out.printf(Locale.ROOT, "%s    {\"priority\": %d, \"latency\": %s}", first ? "" : ",\n", i,
+                        json(latencyByPriority[i]));
+                first = false;
+            }
+            if (!first) out.println();
+            out.println("  ],");
+            out.println("  \"robots\": [");
+            for (int i = 0; i < robots.length; i++) {
+                Robot robot = robots[i];
+                out.printf(Locale.ROOT, "    {\"id\": \"%s\", \"deliveringTicks\": %d, \"returningTicks\": %d, "
+                                + "\"waitingTicks\": %d, \"utilisation\": %.4f}%s%n", robot.getId(),
+                        robot.getTicksInState(Robot.RobotState.DELIVERING),
+                        robot.getTicksInState(Robot.RobotState.RETURNING),
+                        robot.getTicksInState(Robot.RobotState.WAITING), utilisation(robot),
+                        i + 1 < robots.length ? "," : "");
+            }
+            out.println("  ],");
+            out.printf(Locale.ROOT, "  \"poolDepth\": %s,%n", json(poolDepth));
+            out.printf(Locale.ROOT, "  \"poolDepthSeries\": {\"firstTick\": %d, \"intervalTicks\": %d, \"depths\": [",
+                    Math.max(firstTick, 0), seriesInterval);
+            for (int i = 0; i < seriesLength; i++) out.print((i == 0 ? "" : ", ") + depthSeries[i]);
+            out.println("]}");
+            out.println("}");
+        }
+    }
+
+    private static String json(Histogram histogram) {
+        return String.format(Locale.ROOT, "{\"count\": %d, \"mean\": %.2f, \"p50\": %d, \"p90\": %d, \"p99\": %d, "
+                        + "\"p999\": %d, \"max\": %d}", histogram.getCount(), histogram.getMean(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMax());
+    }
+}
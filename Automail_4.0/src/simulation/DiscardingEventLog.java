@@ -0,0 +1,38 @@
+package simulation;
+
+import automail.FeeCharge;
+import automail.MailItem;
+import automail.Robot;
+
+/**
+ * New Class: Team 03
+ * An event log that drops every event without formatting it, for runs where only the results are wanted,
+ * e.g. the seeds of a Monte Carlo run. It keeps no state, so one instance is shared by every simulation.
+ */
+public final class DiscardingEventLog implements EventLog {
+
+    public static final DiscardingEventLog INSTANCE = new DiscardingEventLog();
+
+    private DiscardingEventLog() { }
+
+    @Override
+    public void mailArrived(int tick, MailItem mailItem) { }
+
+    @Override
+    public void stateChanged(int tick, Robot robot, Robot.RobotState from, Robot.RobotState to) { }
+
+    @Override
+    public void deliveryStarted(int tick, Robot robot, MailItem mailItem) { }
+
+    @Override
+    public void delivered(int tick, Robot robot, int deliveredCount, MailItem mailItem, FeeCharge fee) { }
+
+    @Override
+    public void info(String line) { }
+
+    @Override
+    public void flush() { }
+
+    @Override
+    public void close() { }
+}
@@ -0,0 +1,72 @@
+package simulation;
+
+import automail.Automail;
+import automail.Robot;
+
+/**
+ * New Class: Team 03
+ * Discrete event alternative to stepping the clock one tick at a time.
+ *
+ * Between events every robot is only moving between floors (or idling in the mailroom), so those ticks can be
+ * skipped in one step. An event is a mail arrival, a robot reaching its destination or the mailroom, or waiting
+ * robots that can be loaded from the pool. The tick at which an event happens is still run in full, so the log,
+ * the final delivery time and the total delay are the same as with the tick engine.
+ */
+public class EventDrivenEngine {
+
+    private final Automail automail;
+    private final IMailSource mailSource;
+    private final IMailDelivery delivery;
+    private final Clock clock;
+    private final DeliveryMetrics metrics;
+
+    /**
+     * @param context the simulation being run
+     * @param automail the robots and mail pool being simulated
+     * @param mailSource the source of arriving mail
+     */
+    public EventDrivenEngine(SimulationContext context, Automail automail, IMailSource mailSource) {
+        this.automail = automail;
+        this.mailSource = mailSource;
+        this.delivery = context.getDelivery();
+        this.clock = context.getClock();
+        this.metrics = context.getDeliveryMetrics();
+    }
+
+    /**
+     * Advances the clock and every robot up to the next tick at which something other than movement happens.
+     * Does nothing if an event is due at the current tick.
+     */
+    public void skipToNextEvent() {
+        int next = nextEventTime();
+        if (next == Integer.MAX_VALUE) {
+            throw new IllegalStateException("No more events but " + delivery.getDeliveredCount()
+                    + " of " + mailSource.getMailToCreate() + " mail items delivered");
+        }
+        int ticks = next - clock.Time();
+        if (ticks > 0) {
+            /** Nothing is added to or loaded from the pool in the skipped ticks */
+            metrics.poolDepth(clock.Time(), automail.getMailPool().size(), ticks);
+            for (Robot robot : automail.getRobots()) {
+                robot.skipTicks(ticks);
+            }
+            clock.Tick(ticks);
+        }
+    }
+
+    /**
+     * @return the earliest tick, from now on, with an event, or Integer.MAX_VALUE if nothing will happen
+     */
+    private int nextEventTime() {
+        int now = clock.Time();
+        if (automail.getMailPool().isReadyToLoad()) return now;
+
+        int next = mailSource.nextArrivalTime(now);
+        if (next < 0) next = Integer.MAX_VALUE;
+        for (Robot robot : automail.getRobots()) {
+            int ticks = robot.ticksUntilNextEvent();
+            if (ticks != Integer.MAX_VALUE) next = Math.min(next, now + ticks);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,50 @@
+package simulation;
+
+import automail.FeeCharge;
+import automail.MailItem;
+import automail.Robot;
+
+/**
+ * New Class: Team 03
+ * Receives the events of a simulation, which used to be printed straight to the console.
+ * TextEventLog prints them as before, BinaryEventLog records them for EventLogDecoder to print later.
+ */
+public interface EventLog {
+
+    /**
+     * A mail item arrived and was added to the MailPool
+     */
+    void mailArrived(int tick, MailItem mailItem);
+
+    /**
+     * A robot changed state
+     */
+    void stateChanged(int tick, Robot robot, Robot.RobotState from, Robot.RobotState to);
+
+    /**
+     * A robot set off to deliver a mail item
+     */
+    void deliveryStarted(int tick, Robot robot, MailItem mailItem);
+
+    /**
+     * A robot delivered a mail item
+     * @param deliveredCount number of mail items delivered so far, including this one
+     * @param fee the charge for the delivery, or null if fees are not charged
+     */
+    void delivered(int tick, Robot robot, int deliveredCount, MailItem mailItem, FeeCharge fee);
+
+    /**
+     * Any other line of the simulation report, such as the results
+     */
+    void info(String line);
+
+    /**
+     * Write out everything logged so far
+     */
+    void flush();
+
+    /**
+     * Write out everything logged and release the log, once the simulation has finished
+     */
+    void close();
+}
@@ -0,0 +1,153 @@
+package simulation;
+
+import automail.FeeCharge;
+import automail.MailItem;
+import automail.Robot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * New Class: Team 03
+ * Prints a log recorded by BinaryEventLog in the text format of the simulation report, so it can be compared
+ * with the output of a run logged as text.
+ *
+ * Usage: EventLogDecoder logFile [outputFile]
+ */
+public class EventLogDecoder {
+
+    private static final Robot.RobotState[] STATES = Robot.RobotState.values();
+
+    private final TextEventLog text;
+    private final List<String> robotIds = new ArrayList<>();
+
+    /**
+     * @param out where the report is printed
+     */
+    public EventLogDecoder(PrintStream out) {
+        this.text = new TextEventLog(out);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: EventLogDecoder logFile [outputFile]");
+            return;
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(
+                args.length > 1 ? new FileOutputStream(args[1]) : new FileOutputStream(FileDescriptor.out),
+                1 << 16), false);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0]), 1 << 16))) {
+            new EventLogDecoder(out).decode(in);
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * Print every record of a log
+     * @param in the log, from its header
+     * @throws IOException if the log cannot be read or is not an event log
+     */
+    public void decode(DataInputStream in) throws IOException {
+        if (in.readInt() != BinaryEventLog.MAGIC) throw new IOException("Not an event log");
+        int version = in.readInt();
+        if (version != BinaryEventLog.VERSION) throw new IOException("Unsupported event log version " + version);
+        if (in.readInt() != BinaryEventLog.RECORD_BYTES) throw new IOException("Unexpected record size");
+        in.readInt();
+
+        byte[] record = new byte[BinaryEventLog.RECORD_BYTES];
+        ByteBuffer fields = ByteBuffer.wrap(record);
+        while (true) {
+            try {
+                in.readFully(record);
+            } catch (EOFException e) {
+                break;
+            }
+            fields.clear();
+            byte type = fields.get();
+            int first = fields.get();
+            int second = fields.get();
+            int tube = fields.get();
+            int tick = fields.getInt();
+            switch (type) {
+                case BinaryEventLog.ARRIVED:
+                    text.printMailArrived(tick, mailItem(fields));
+                    break;
+                case BinaryEventLog.STATE_CHANGED:
+                    text.printStateChanged(tick, idTube(fields.getInt(), tube), STATES[first], STATES[second]);
+                    break;
+                case BinaryEventLog.DELIVERY_STARTED: {
+                    String robot = idTube(fields.getInt(), tube);
+                    text.printDeliveryStarted(tick, robot, mailItem(fields));
+                    break;
+                }
+                case BinaryEventLog.DELIVERED: {
+                    String robot = idTube(fields.getInt(), tube);
+                    int deliveredCount = fields.getInt();
+                    String mailItem = mailItem(fields);
+                    text.printDelivered(tick, robot, deliveredCount, mailItem, feeFollowing(in, record, fields));
+                    break;
+                }
+                case BinaryEventLog.ROBOT: {
+                    int number = fields.getInt();
+                    byte[] id = new byte[fields.get()];
+                    fields.get(id);
+                    while (robotIds.size() <= number) robotIds.add(null);
+                    robotIds.set(number, new String(id, StandardCharsets.UTF_8));
+                    break;
+                }
+                case BinaryEventLog.TEXT: {
+                    int length = tick;
+                    int padded = (length + BinaryEventLog.RECORD_BYTES - 1) / BinaryEventLog.RECORD_BYTES
+                            * BinaryEventLog.RECORD_BYTES;
+                    byte[] line = new byte[padded];
+                    in.readFully(line);
+                    text.info(new String(line, 0, length, StandardCharsets.UTF_8));
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown record type " + type);
+            }
+        }
+        text.flush();
+    }
+
+    private String idTube(int robot, int tube) {
+        return Robot.formatIdTube(robotIds.get(robot), tube);
+    }
+
+    private static String mailItem(ByteBuffer fields) {
+        int id = fields.getInt();
+        int arrival = fields.getInt();
+        int floor = fields.getInt();
+        int weight = fields.getInt();
+        return new MailItem(floor, arrival, weight, id).toString();
+    }
+
+    /**
+     * Read the FEE record that follows a delivery, if there is one
+     * @return the fee as it is appended to the delivery line, empty if there is no FEE record
+     */
+    private static String feeFollowing(DataInputStream in, byte[] record, ByteBuffer fields) throws IOException {
+        in.mark(BinaryEventLog.RECORD_BYTES);
+        int type = in.read();
+        in.reset();
+        if (type != BinaryEventLog.FEE) return "";
+        in.readFully(record);
+        fields.clear();
+        fields.position(8);
+        return new FeeCharge(fields.getDouble(), fields.getDouble(), fields.getDouble(), fields.getDouble())
+                .toString();
+    }
+}
@@ -0,0 +1,91 @@
+package simulation;
+
+import automail.FeeCharge;
+import automail.MailItem;
+import automail.Robot;
+
+/**
+ * New Class: Team 03
+ * Passes on only some of the events of a simulation, as set by Log_Level.
+ * Report lines such as the results are always passed on.
+ */
+public class FilteredEventLog implements EventLog {
+
+    /** How much of the simulation is logged */
+    public enum Level {
+        /** Every event */
+        FULL,
+        /** Only deliveries */
+        DELIVERIES,
+        /** One in every sampleRate events */
+        SAMPLED,
+        /** Only the report lines, e.g. the results */
+        SUMMARY
+    }
+
+    private final EventLog eventLog;
+    private final Level level;
+    private final int sampleRate;
+    private long events = 0;
+
+    /**
+     * @param eventLog where the events passed on go
+     * @param level how much is passed on
+     * @param sampleRate with Level.SAMPLED, one in this many events is passed on
+     */
+    public FilteredEventLog(EventLog eventLog, Level level, int sampleRate) {
+        if (sampleRate < 1) throw new IllegalArgumentException("Sample rate must be at least 1");
+        this.eventLog = eventLog;
+        this.level = level;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return true if an event other than a delivery is passed on
+     */
+    private boolean pass() {
+        switch (level) {
+            case FULL:
+                return true;
+            case SAMPLED:
+                return events++ % sampleRate == 0;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void mailArrived(int tick, MailItem mailItem) {
+        if (pass()) eventLog.mailArrived(tick, mailItem);
+    }
+
+    @Override
+    public void stateChanged(int tick, Robot robot, Robot.RobotState from, Robot.RobotState to) {
+        if (pass()) eventLog.stateChanged(tick, robot, from, to);
+    }
+
+    @Override
+    public void deliveryStarted(int tick, Robot robot, MailItem mailItem) {
+        if (pass()) eventLog.deliveryStarted(tick, robot, mailItem);
+    }
+
+    @Override
+    public void delivered(int tick, Robot robot, int deliveredCount, MailItem mailItem, FeeCharge fee) {
+        if (level == Level.DELIVERIES || pass()) eventLog.delivered(tick, robot, deliveredCount, mailItem, fee);
+    }
+
+    @Override
+    public void info(String line) {
+        eventLog.info(line);
+    }
+
+    @Override
+    public void flush() {
+        eventLog.flush();
+    }
+
+    @Override
+    public void close() {
+        eventLog.close();
+    }
+}
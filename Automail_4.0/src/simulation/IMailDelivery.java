@@ -1,10 +1,9 @@
 package simulation;
 
+import automail.FeeCharge;
 import automail.MailItem;
 import automail.Robot;
 
-import java.util.Set;
-
 /**
  * a MailDelivery is used by the Robot to deliver mail once it has arrived at the correct location
  */
@@ -13,10 +12,28 @@ public interface IMailDelivery {
 	/**
      * Delivers an item at its floor
      * @param mailItem the mail item being delivered.
+     * @param fee the charge for the delivery, or null if fees are not charged. The robot reuses it for its
+     *            next delivery, so it must be copied if it is kept
      */
-	void deliver(Robot robot, MailItem mailItem, String additionalLog);
+	void deliver(Robot robot, MailItem mailItem, FeeCharge fee);
+
+	/**
+	 * Make room to record the delivery of a number of mail items up front, so that recording deliveries
+	 * does not allocate while the simulation runs
+	 * @param mailItems the number of mail items that will be delivered
+	 */
+	void expectMailItems(int mailItems);
 
 	double getTotal_delay();
 
-	Set<MailItem> getDeliveredItems();
+	/**
+	 * @return the number of distinct mail items delivered so far
+	 */
+	int getDeliveredCount();
+
+	/**
+	 * @param mailItem a mail item of this simulation
+	 * @return true if the item has been delivered
+	 */
+	boolean isDelivered(MailItem mailItem);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package simulation;
+
+/**
+ * New Class: Team 03
+ * Where the mail of a simulation comes from, either generated or replayed from a trace
+ */
+public interface IMailSource {
+
+    /**
+     * @return the total number of mail items that will arrive
+     */
+    int getMailToCreate();
+
+    /**
+     * Put the mail arriving at the current clock time into the MailPool
+     */
+    void addToMailPool();
+
+    /**
+     * @param time the earliest time of interest
+     * @return the first time step at or after the given time at which mail arrives, or -1 if no more mail arrives
+     */
+    int nextArrivalTime(int time);
+}
@@ -1,15 +1,29 @@
 package simulation;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 import automail.Building;
 import automail.MailItem;
 import automail.MailPool;
 
 /**
- * This class generates the mail
+ * Modified Class: Team 03
+ * This class generates the mail. Generated mail is kept in a columnar MailWorkload until it arrives.
+ *
+ * In batch mode all the mail is generated up front. In streaming mode only the mail arriving within a window
+ * of ticks is kept: when the clock leaves the window the random sequence is replayed from the seed and the
+ * mail of the next window is picked out, so memory is bounded by the window whatever the amount of mail.
+ * Both modes draw the same sequence, so they produce the same mail for a seed. Once the clock is past the last
+ * arrival, generation is exhausted and one empty window covers the rest of the run without further replays.
+ *
+ * In parallel mode the mail is generated up front in fixed size chunks on a fork-join pool. Each chunk draws
+ * from its own SplittableRandom seeded from the seed and the chunk number, so the mail depends only on the
+ * seed and not on the number of threads. It is a different sequence from batch mode.
  */
-public class MailGenerator {
+public class MailGenerator implements IMailSource {
 
     public final int MAIL_TO_CREATE;
     public final int MAIL_MAX_WEIGHT;
@@ -18,60 +32,71 @@ public class MailGenerator {
 
     private final Random random;
     /** This seed is used to make the behaviour deterministic */
+    private final long seed;
+    private final int mailToCreate;
     
     private boolean complete;
     private MailPool mailPool;
+    private final SimulationContext context;
 
-    private Map<Integer,ArrayList<MailItem>> allMail;
+    private MailWorkload allMail;
+    private final ArrayList<MailItem> arrivals = new ArrayList<>();
+
+    /** Mail items generated by each chunk in parallel mode */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /** Streaming mode: allMail holds the mail arriving in ticks windowStart up to windowEnd */
+    private boolean streaming = false;
+    private int windowTicks;
+    private int windowStart;
+    private int windowEnd;
+    private int firstMailItemId;
+    /** Streaming mode: the time of the last arrival of all, found by the first replay, or -1 before it */
+    private int lastArrivalTime = -1;
 
     /**
      * Constructor for mail generation
+     * @param context the simulation the mail is generated for
      * @param mailToCreate roughly how many mail items to create
      * @param mailMaxWeight limits the maximum weight of the mail
      * @param mailPool where mail items go on arrival
      * @param seed random seed for generating mail
      */
-    public MailGenerator(int mailToCreate, int mailMaxWeight, MailPool mailPool, HashMap<Boolean,Integer> seed){
+    public MailGenerator(SimulationContext context, int mailToCreate, int mailMaxWeight, MailPool mailPool, HashMap<Boolean,Integer> seed){
         if(seed.containsKey(true)){
-        	this.random = new Random((long) seed.get(true));
+        	this.seed = seed.get(true);
         }
         else{
-        	this.random = new Random();	
+        	/** Pick a seed, so that streaming mode can replay the sequence */
+        	this.seed = new Random().nextLong();
         }
+        this.random = new Random(this.seed);
+        this.mailToCreate = mailToCreate;
         // Vary arriving mail by +/-20%
         MAIL_TO_CREATE = mailToCreate*4/5 + random.nextInt(mailToCreate*2/5);
         MAIL_MAX_WEIGHT = mailMaxWeight;
         // System.out.println("Num Mail Items: "+MAIL_TO_CREATE);
         mailCreated = 0;
         complete = false;
-        allMail = new HashMap<Integer,ArrayList<MailItem>>();
+        allMail = null;
         this.mailPool = mailPool;
+        this.context = context;
     }
 
     /**
-     * @return a new mail item that needs to be delivered
-     */
-    private MailItem generateMail(){
-    	MailItem newMailItem;
-        int destinationFloor = generateDestinationFloor();
-        int priorityLevel = generatePriorityLevel();
-        int arrivalTime = generateArrivalTime();
-        int weight = generateWeight();
-        newMailItem = new MailItem(destinationFloor,arrivalTime,weight);      	
-        return newMailItem;
-    }
-
-    /**
+     * @param random the random sequence to draw from
      * @return a destination floor between the ranges of GROUND_FLOOR to FLOOR
      */
-    private int generateDestinationFloor(){
-        return Building.getInstance().getLowestFloor() + random.nextInt(Building.getInstance().getnFloors());
+    private int generateDestinationFloor(Random random){
+        Building building = context.getBuilding();
+        return building.getLowestFloor() + random.nextInt(building.getnFloors());
     }
 
     /**
+     * @param random the random sequence to draw from
      * @return a random weight
      */
-    private int generateWeight(){
+    private int generateWeight(Random random){
     	final double mean = 200.0; // grams for normal item
     	final double stddev = 1000.0; // grams
     	double base = random.nextGaussian();
@@ -81,40 +106,37 @@ public class MailGenerator {
     }
     
     /**
+     * @param random the random sequence to draw from
      * @return a random arrival time before the last delivery time
      */
-    private int generateArrivalTime(){
-        return 1 + random.nextInt(Clock.MAIL_RECEVING_LENGTH);
+    private int generateArrivalTime(Random random){
+        return 1 + random.nextInt(context.getClock().MAIL_RECEVING_LENGTH);
     }
 
     /**
+     * @param random the random sequence to draw from
      * @return a random priority level selected from 1 - 100
      */
-    private int generatePriorityLevel(){
+    private int generatePriorityLevel(Random random){
         return 10*(1 + random.nextInt(10));
     }
 
     /**
      * This class initializes all mails and sets their corresponding values,
-     * All generated mails will be saved in allMail
+     * All generated mails will be saved in allMail, sorted by arrival time
      */
     public void generateAllMail(){
+        int[] ids = new int[MAIL_TO_CREATE];
+        int[] destinationFloors = new int[MAIL_TO_CREATE];
+        int[] arrivalTimes = new int[MAIL_TO_CREATE];
+        int[] weights = new int[MAIL_TO_CREATE];
+        int[] priorities = new int[MAIL_TO_CREATE];
         while(!complete){
-            MailItem newMail =  generateMail();
-            int timeToDeliver = newMail.getArrivalTime();
-            /** Check if key exists for this time **/
-            if(allMail.containsKey(timeToDeliver)){
-                /** Add to existing array */
-                allMail.get(timeToDeliver).add(newMail);
-            }
-            else{
-                /** If the key doesn't exist then set a new key along with the array of MailItems to add during
-                 * that time step.
-                 */
-                ArrayList<MailItem> newMailList = new ArrayList<MailItem>();
-                newMailList.add(newMail);
-                allMail.put(timeToDeliver,newMailList);
-            }
+            destinationFloors[mailCreated] = generateDestinationFloor(random);
+            priorities[mailCreated] = generatePriorityLevel(random);
+            arrivalTimes[mailCreated] = generateArrivalTime(random);
+            weights[mailCreated] = generateWeight(random);
+            ids[mailCreated] = context.nextMailItemId();
             /** Mark the mail as created */
             mailCreated++;
 
@@ -123,20 +145,251 @@ public class MailGenerator {
                 complete = true;
             }
         }
+        allMail = MailWorkload.fromColumns(ids, destinationFloors, arrivalTimes, weights, priorities);
+    }
+
+    /**
+     * Generate all the mail in parallel instead of calling generateAllMail
+     * @param threads number of threads generating chunks
+     */
+    public void generateAllMailParallel(int threads){
+        int[] ids = new int[MAIL_TO_CREATE];
+        int[] destinationFloors = new int[MAIL_TO_CREATE];
+        int[] arrivalTimes = new int[MAIL_TO_CREATE];
+        int[] weights = new int[MAIL_TO_CREATE];
+        int[] priorities = new int[MAIL_TO_CREATE];
+        int firstId = context.reserveMailItemIds(MAIL_TO_CREATE);
+        int chunks = (MAIL_TO_CREATE + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new GenerateChunks(0, chunks, chunk -> {
+                SplittableRandom chunkRandom = new SplittableRandom(mix(seed + chunk * 0x9E3779B97F4A7C15L));
+                int end = (int) Math.min(MAIL_TO_CREATE, (long) (chunk + 1) * CHUNK_SIZE);
+                for(int row = chunk * CHUNK_SIZE; row < end; row++){
+                    destinationFloors[row] = generateDestinationFloor(chunkRandom);
+                    arrivalTimes[row] = generateArrivalTime(chunkRandom);
+                    weights[row] = generateWeight(chunkRandom);
+                    priorities[row] = generatePriorityLevel(chunkRandom);
+                    ids[row] = firstId + row;
+                }
+            }));
+        } finally {
+            pool.shutdown();
+        }
+        mailCreated = MAIL_TO_CREATE;
+        complete = true;
+        allMail = MailWorkload.fromColumns(ids, destinationFloors, arrivalTimes, weights, priorities);
+    }
+
+    /**
+     * Splits a range of chunks in half until single chunks are left
+     */
+    private static class GenerateChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer generateChunk;
+
+        GenerateChunks(int from, int to, IntConsumer generateChunk) {
+            this.from = from;
+            this.to = to;
+            this.generateChunk = generateChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) generateChunk.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GenerateChunks(from, middle, generateChunk), new GenerateChunks(middle, to, generateChunk));
+        }
+    }
+
+    /**
+     * Mixes the bits of a chunk seed (the SplitMix64 finaliser), so neighbouring chunks get unrelated streams
+     */
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 
+    private int generateDestinationFloor(SplittableRandom random){
+        Building building = context.getBuilding();
+        return building.getLowestFloor() + random.nextInt(building.getnFloors());
+    }
+
+    private int generateArrivalTime(SplittableRandom random){
+        return 1 + random.nextInt(context.getClock().MAIL_RECEVING_LENGTH);
+    }
+
+    private int generatePriorityLevel(SplittableRandom random){
+        return 10*(1 + random.nextInt(10));
+    }
+
+    /**
+     * Same distribution as generateWeight(Random). SplittableRandom has no nextGaussian, so the normal
+     * deviate is drawn with the polar method.
+     */
+    private int generateWeight(SplittableRandom random){
+        final double mean = 200.0; // grams for normal item
+        final double stddev = 1000.0; // grams
+        double v1, v2, s;
+        do {
+            v1 = 2 * random.nextDouble() - 1;
+            v2 = 2 * random.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double base = Math.abs(v1 * Math.sqrt(-2 * Math.log(s) / s));
+        int weight = (int) (mean + base * stddev);
+        return weight > MAIL_MAX_WEIGHT ? MAIL_MAX_WEIGHT : weight;
+    }
+
+    /**
+     * Generate the mail lazily instead of calling generateAllMail. The window is sized so that about
+     * bufferSize mail items arrive within it, and each window costs one replay of the random sequence.
+     * @param bufferSize roughly how many generated mail items are kept at a time
+     */
+    public void startStreaming(int bufferSize){
+        if(bufferSize < 1) throw new IllegalArgumentException("Mail stream buffer must be at least 1");
+        int receivingLength = context.getClock().MAIL_RECEVING_LENGTH;
+        streaming = true;
+        windowTicks = (int) Math.max(1, Math.min(receivingLength,
+                (long) receivingLength * bufferSize / Math.max(1, MAIL_TO_CREATE)));
+        /** Reserve the identifiers batch mode would hand out, in creation order */
+        firstMailItemId = context.reserveMailItemIds(MAIL_TO_CREATE);
+        windowStart = 0;
+        windowEnd = 0;
+    }
+
+    /**
+     * Replay the random sequence and keep the mail arriving from the given tick until the end of the window
+     * @param start first tick of the window
+     */
+    private void fillWindow(int start){
+        Random replay = new Random(seed);
+        /** Skip the draw of MAIL_TO_CREATE made in the constructor */
+        replay.nextInt(mailToCreate*2/5);
+
+        windowStart = start;
+        windowEnd = (int) Math.min(Integer.MAX_VALUE, (long) start + windowTicks);
+        int capacity = 16;
+        int count = 0;
+        int[] ids = new int[capacity];
+        int[] destinationFloors = new int[capacity];
+        int[] arrivalTimes = new int[capacity];
+        int[] weights = new int[capacity];
+        int[] priorities = new int[capacity];
+        /** Mail arrives from tick 1, so 0 stands for no mail at all */
+        int lastArrival = 0;
+        for(int created = 0; created < MAIL_TO_CREATE; created++){
+            int destinationFloor = generateDestinationFloor(replay);
+            int priority = generatePriorityLevel(replay);
+            int arrivalTime = generateArrivalTime(replay);
+            int weight = generateWeight(replay);
+            lastArrival = Math.max(lastArrival, arrivalTime);
+            if(arrivalTime < windowStart || arrivalTime >= windowEnd) continue;
+            if(count == capacity){
+                capacity *= 2;
+                ids = Arrays.copyOf(ids, capacity);
+                destinationFloors = Arrays.copyOf(destinationFloors, capacity);
+                arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+            }
+            ids[count] = firstMailItemId + created;
+            destinationFloors[count] = destinationFloor;
+            arrivalTimes[count] = arrivalTime;
+            weights[count] = weight;
+            priorities[count] = priority;
+            count++;
+        }
+        allMail = MailWorkload.fromColumns(Arrays.copyOf(ids, count), Arrays.copyOf(destinationFloors, count),
+                Arrays.copyOf(arrivalTimes, count), Arrays.copyOf(weights, count), Arrays.copyOf(priorities, count));
+        lastArrivalTime = lastArrival;
+    }
+
+    /**
+     * Generation is exhausted: keep an empty window from after the last arrival to the end of time
+     */
+    private void exhaust(){
+        windowStart = lastArrivalTime + 1;
+        windowEnd = Integer.MAX_VALUE;
+        allMail = MailWorkload.fromColumns(new int[0], new int[0], new int[0], new int[0], new int[0]);
+    }
+
+    /**
+     * In streaming mode, make sure the window covers the given tick
+     * @param time a time step
+     */
+    private void ensureWindow(int time){
+        if(!streaming || (time >= windowStart && time < windowEnd)) return;
+        if(lastArrivalTime >= 0 && time > lastArrivalTime){
+            /** No mail arrives any more, so there is nothing to replay the sequence for */
+            exhaust();
+        } else {
+            fillWindow(time);
+        }
     }
     
+    @Override
+    public int getMailToCreate(){
+        return MAIL_TO_CREATE;
+    }
+
+    /**
+     * @param time the earliest time of interest
+     * @return the first time step at or after the given time at which mail arrives, or -1 if no more mail arrives
+     */
+    @Override
+    public int nextArrivalTime(int time){
+        if(!streaming){
+            return allMail.nextArrivalTime(time);
+        }
+        int from = time;
+        ensureWindow(time);
+        int next = allMail.nextArrivalTime(time);
+        while(next < 0 && windowEnd <= lastArrivalTime){
+            /** Nothing arrives in this window, so move on to the next one, which then also covers the empty ticks */
+            fillWindow(windowEnd);
+            windowStart = from;
+            next = allMail.nextArrivalTime(time);
+        }
+        return next;
+    }
+
+    /**
+     * @return the generated mail, once generateAllMail has been called, or the current window in streaming mode
+     */
+    public MailWorkload getWorkload(){
+        return allMail;
+    }
+
     /**
      * Given the clock time, put the generated mails into the mailPool.
      * So that the robot will can pick up the mails from the pool.
      */
+    @Override
     public void addToMailPool(){
     	// Check if there are any mail to create
-        if(this.allMail.containsKey(Clock.Time())){
-            for(MailItem mailItem : allMail.get(Clock.Time())){
-                System.out.printf("T: %3d > new addToPool [%s]%n", Clock.Time(), mailItem.toString());
-                mailPool.addToPool(mailItem);
+        Clock clock = context.getClock();
+        ensureWindow(clock.Time());
+        int first = allMail.firstRow(clock.Time());
+        int end = allMail.endRow(clock.Time());
+        if(first < end){
+            /** Mail items are only created now that they arrive */
+            arrivals.clear();
+            for(int row = first; row < end; row++){
+                MailItem mailItem = allMail.createMailItem(row);
+                context.getEventLog().mailArrived(clock.Time(), mailItem);
+                arrivals.add(mailItem);
             }
+            /** Merge the whole time step into the pool at once */
+            mailPool.addAllToPool(arrivals);
         }
     }
     
@@ -0,0 +1,44 @@
+package simulation;
+
+import automail.MailPool;
+import util.Configuration;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+/**
+ * New Class: Team 03
+ * Records the mail that MailGenerator would generate into a binary trace, for Mail_Trace_File to replay.
+ *
+ * Usage: MailTraceRecorder traceFile [seed]
+ * The mail is generated as set in the properties file, including Mail_Generation, and written in arrival order
+ * one tick at a time, so streaming generation records a trace of any size in bounded memory.
+ */
+public class MailTraceRecorder {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: MailTraceRecorder traceFile [seed]");
+            return;
+        }
+        Configuration configuration = Configuration.load(Configuration.DEFAULT_FILE_NAME);
+        String[] seedArgs = new String[args.length - 1];
+        System.arraycopy(args, 1, seedArgs, 0, seedArgs.length);
+        HashMap<Boolean, Integer> seedMap = Simulation.readSeed(seedArgs, configuration);
+
+        SimulationContext context = new SimulationContext(configuration, DiscardingEventLog.INSTANCE);
+        MailGenerator mailGenerator = Simulation.createMailGenerator(context, new MailPool(context), seedMap);
+        Simulation.generateMail(mailGenerator, configuration);
+
+        try (MailTraceWriter writer = new MailTraceWriter(Paths.get(args[0]))) {
+            for (int tick = mailGenerator.nextArrivalTime(0); tick >= 0; tick = mailGenerator.nextArrivalTime(tick + 1)) {
+                MailWorkload workload = mailGenerator.getWorkload();
+                for (int row = workload.firstRow(tick); row < workload.endRow(tick); row++) {
+                    writer.write(workload.getArrivalTime(row), workload.getDestinationFloor(row),
+                            workload.getWeight(row), workload.getPriority(row));
+                }
+            }
+            System.out.println("Recorded " + writer.getRecords() + " mail items to " + args[0]);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * New Class: Team 03
+ * Writes a binary mail trace, which TraceReplaySource can replay.
+ *
+ * Format, big-endian:
+ * header of 16 bytes: magic "AMTR", format version (int), number of records (long)
+ * then one 16 byte record per mail item: arrival tick, destination floor, weight, priority level (all int),
+ * in order of arrival tick.
+ * Version 1 traces have 12 byte records without the priority level, and are still replayed.
+ */
+public class MailTraceWriter implements Closeable {
+
+    public static final int MAGIC = 0x414D5452;
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 16;
+    /** Record size of version 1 traces, which have no priority level */
+    public static final int VERSION_1_RECORD_BYTES = 12;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 8192);
+    private long records = 0;
+    private int lastArrivalTime = Integer.MIN_VALUE;
+
+    /**
+     * Create or overwrite a trace file
+     * @param path the trace file
+     * @throws IOException if the file cannot be written
+     */
+    public MailTraceWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        /** The record count is filled in by close */
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+    }
+
+    /**
+     * Append a mail item, which may not arrive before the previous one
+     * @param arrivalTime arrival tick
+     * @param destinationFloor destination floor
+     * @param weight weight in grams
+     * @param priority priority level
+     * @throws IOException if the file cannot be written
+     */
+    public void write(int arrivalTime, int destinationFloor, int weight, int priority) throws IOException {
+        if (arrivalTime < lastArrivalTime) {
+            throw new IllegalArgumentException("Mail arriving at " + arrivalTime + " after mail arriving at "
+                    + lastArrivalTime);
+        }
+        lastArrivalTime = arrivalTime;
+        if (buffer.remaining() < RECORD_BYTES) flush();
+        buffer.putInt(arrivalTime).putInt(destinationFloor).putInt(weight).putInt(priority);
+        records++;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @return the number of records written so far
+     */
+    public long getRecords() { return records; }
+
+    /**
+     * Write the remaining records and the record count
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer count = ByteBuffer.allocate(Long.BYTES).putLong(0, records);
+            channel.write(count, 8);
+        } finally {
+            channel.close();
+        }
+    }
+}
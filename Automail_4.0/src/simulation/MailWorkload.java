@@ -0,0 +1,134 @@
+package simulation;
+
+import automail.MailItem;
+
+import java.util.Arrays;
+
+/**
+ * New Class: Team 03
+ * Columnar store of generated mail that has not arrived yet.
+ *
+ * Each mail item is a row across parallel int arrays (20 bytes per item) instead of a MailItem object, and the
+ * rows are sorted by arrival time with an offset index per tick. MailItem objects are only created when the
+ * mail arrives and enters the MailPool.
+ */
+public class MailWorkload {
+
+    private final int[] ids;
+    private final int[] destinationFloors;
+    private final int[] arrivalTimes;
+    private final int[] weights;
+    private final int[] priorities;
+
+    /** Rows tickOffsets[t - firstTick] up to tickOffsets[t - firstTick + 1] arrive at tick t */
+    private final int[] tickOffsets;
+    private final int firstTick;
+
+    private MailWorkload(int[] ids, int[] destinationFloors, int[] arrivalTimes, int[] weights, int[] priorities,
+                         int[] tickOffsets, int firstTick) {
+        this.ids = ids;
+        this.destinationFloors = destinationFloors;
+        this.arrivalTimes = arrivalTimes;
+        this.weights = weights;
+        this.priorities = priorities;
+        this.tickOffsets = tickOffsets;
+        this.firstTick = firstTick;
+    }
+
+    /**
+     * Build a workload from columns in creation order. Rows are sorted by arrival time with a counting sort,
+     * which keeps the creation order of the mail arriving in the same tick. The tick index only spans the
+     * ticks from the earliest to the latest arrival, so a window of late ticks stays small.
+     * @param ids mail item IDs
+     * @param destinationFloors destination floor of each item
+     * @param arrivalTimes arrival time of each item, not negative
+     * @param weights weight of each item
+     * @param priorities priority level of each item
+     * @return the sorted workload
+     */
+    public static MailWorkload fromColumns(int[] ids, int[] destinationFloors, int[] arrivalTimes, int[] weights,
+                                           int[] priorities) {
+        int size = ids.length;
+        if (destinationFloors.length != size || arrivalTimes.length != size || weights.length != size
+                || priorities.length != size) {
+            throw new IllegalArgumentException("Columns have different lengths");
+        }
+        int firstTick = size == 0 ? 0 : Integer.MAX_VALUE;
+        int lastTick = -1;
+        for (int arrivalTime : arrivalTimes) {
+            if (arrivalTime < 0) throw new IllegalArgumentException("Negative arrival time " + arrivalTime);
+            firstTick = Math.min(firstTick, arrivalTime);
+            lastTick = Math.max(lastTick, arrivalTime);
+        }
+
+        int[] tickOffsets = new int[lastTick - firstTick + 2];
+        for (int arrivalTime : arrivalTimes) tickOffsets[arrivalTime - firstTick + 1]++;
+        for (int tick = 1; tick < tickOffsets.length; tick++) tickOffsets[tick] += tickOffsets[tick - 1];
+
+        int[] next = Arrays.copyOf(tickOffsets, tickOffsets.length - 1);
+        int[] sortedIds = new int[size];
+        int[] sortedFloors = new int[size];
+        int[] sortedArrivals = new int[size];
+        int[] sortedWeights = new int[size];
+        int[] sortedPriorities = new int[size];
+        for (int row = 0; row < size; row++) {
+            int to = next[arrivalTimes[row] - firstTick]++;
+            sortedIds[to] = ids[row];
+            sortedFloors[to] = destinationFloors[row];
+            sortedArrivals[to] = arrivalTimes[row];
+            sortedWeights[to] = weights[row];
+            sortedPriorities[to] = priorities[row];
+        }
+        return new MailWorkload(sortedIds, sortedFloors, sortedArrivals, sortedWeights, sortedPriorities, tickOffsets,
+                firstTick);
+    }
+
+    /**
+     * @return the number of mail items in the workload
+     */
+    public int size() { return ids.length; }
+
+    /**
+     * @param tick a time step
+     * @return the first row arriving at the tick
+     */
+    public int firstRow(int tick) {
+        int index = tick - firstTick;
+        if (index < 0) return 0;
+        return index < tickOffsets.length - 1 ? tickOffsets[index] : ids.length;
+    }
+
+    /**
+     * @param tick a time step
+     * @return one past the last row arriving at the tick
+     */
+    public int endRow(int tick) {
+        int index = tick - firstTick;
+        if (index < 0) return 0;
+        return index < tickOffsets.length - 1 ? tickOffsets[index + 1] : ids.length;
+    }
+
+    /**
+     * @param tick the earliest time of interest
+     * @return the first time step at or after tick at which mail arrives, or -1 if no more mail arrives
+     */
+    public int nextArrivalTime(int tick) {
+        int row = firstRow(tick);
+        return row < ids.length ? arrivalTimes[row] : -1;
+    }
+
+    /**
+     * Create the MailItem of a row, when it enters the MailPool
+     * @param row index of the row
+     * @return a new mail item
+     */
+    public MailItem createMailItem(int row) {
+        return new MailItem(destinationFloors[row], arrivalTimes[row], weights[row], ids[row], priorities[row]);
+    }
+
+    public int getId(int row) { return ids[row]; }
+    public int getDestinationFloor(int row) { return destinationFloors[row]; }
+    public int getArrivalTime(int row) { return arrivalTimes[row]; }
+    public int getWeight(int row) { return weights[row]; }
+    public int getPriority(int row) { return priorities[row]; }
+}
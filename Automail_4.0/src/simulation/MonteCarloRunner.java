@@ -0,0 +1,154 @@
+package simulation;
+
+import com.unimelb.swen30006.wifimodem.WifiModem;
+import exceptions.ExcessiveDeliveryException;
+import exceptions.ItemTooHeavyException;
+import util.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * New Class: Team 03
+ * Runs the simulation for a range of seeds in parallel and summarises the results across seeds.
+ *
+ * Usage: MonteCarloRunner firstSeed lastSeed [threads]
+ * The properties file is read once and shared by every run. Each run has its own SimulationContext and
+ * discards its log. Results are stored by seed and summarised in seed order, so the summary is the same
+ * whatever the number of threads.
+ */
+public class MonteCarloRunner {
+
+    private final Configuration configuration;
+    private final int firstSeed;
+    private final int lastSeed;
+    private final int threads;
+
+    private final int[] finalDeliveryTimes;
+    private final double[] totalDelays;
+
+    /**
+     * @param configuration the simulation properties shared by every run
+     * @param firstSeed first seed of the range
+     * @param lastSeed last seed of the range, inclusive
+     * @param threads number of simulations run at the same time
+     */
+    public MonteCarloRunner(Configuration configuration, int firstSeed, int lastSeed, int threads) {
+        if (lastSeed < firstSeed) throw new IllegalArgumentException("Empty seed range " + firstSeed + " - " + lastSeed);
+        if (threads < 1) throw new IllegalArgumentException("Need at least one thread");
+        this.configuration = configuration;
+        this.firstSeed = firstSeed;
+        this.lastSeed = lastSeed;
+        this.threads = threads;
+        this.finalDeliveryTimes = new int[lastSeed - firstSeed + 1];
+        this.totalDelays = new double[lastSeed - firstSeed + 1];
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: MonteCarloRunner firstSeed lastSeed [threads]");
+            return;
+        }
+        int firstSeed = Integer.parseInt(args[0]);
+        int lastSeed = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Configuration configuration = Configuration.load(Configuration.DEFAULT_FILE_NAME);
+
+        /** The modem is shared by all runs, so it is turned on once */
+        WifiModem wifiModem = WifiModem.getInstance(
+                Integer.parseInt(configuration.getProperty(Configuration.MAILROOM_LOCATION_FLOOR_KEY)));
+        System.out.println(wifiModem.Turnon());
+
+        MonteCarloRunner runner = new MonteCarloRunner(configuration, firstSeed, lastSeed, threads);
+        long start = System.nanoTime();
+        runner.runAll();
+        long elapsed = System.nanoTime() - start;
+
+        runner.printSummary();
+        System.out.printf("Wall time: %.2f s%n", elapsed / 1e9);
+        System.out.println(wifiModem.Turnoff());
+    }
+
+    /**
+     * Run every seed of the range, at most threads at a time
+     * @throws ExecutionException if any simulation fails
+     */
+    public void runAll() throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int seed = firstSeed; seed <= lastSeed; seed++) {
+                final int index = seed - firstSeed;
+                final int runSeed = seed;
+                tasks.add(() -> {
+                    runSeed(index, runSeed);
+                    return null;
+                });
+            }
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void runSeed(int index, int seed) {
+        SimulationContext context = new SimulationContext(configuration, DiscardingEventLog.INSTANCE);
+        HashMap<Boolean, Integer> seedMap = new HashMap<>();
+        seedMap.put(true, seed);
+        try {
+            Simulation.run(context, seedMap);
+        } catch (ExcessiveDeliveryException | ItemTooHeavyException e) {
+            throw new IllegalStateException("Simulation unable to complete for seed " + seed, e);
+        }
+        finalDeliveryTimes[index] = context.getClock().Time();
+        totalDelays[index] = context.getDelivery().getTotal_delay();
+    }
+
+    /**
+     * Print mean, standard deviation and percentiles of the final delivery time and total delay
+     */
+    public void printSummary() {
+        double[] times = new double[finalDeliveryTimes.length];
+        for (int i = 0; i < times.length; i++) times[i] = finalDeliveryTimes[i];
+
+        System.out.printf("#Seeds: %d - %d (%d runs, %d threads)%n", firstSeed, lastSeed, times.length, threads);
+        System.out.println("                         mean       stddev          min          p50          p90"
+                + "          p99          max");
+        printRow("Final Delivery time", times);
+        printRow("Delay", totalDelays.clone());
+    }
+
+    private static void printRow(String name, double[] values) {
+        /** Sums are taken in seed order before sorting, so they do not depend on the thread count */
+        double sum = 0;
+        for (double value : values) sum += value;
+        double mean = sum / values.length;
+        double squares = 0;
+        for (double value : values) squares += (value - mean) * (value - mean);
+        double stddev = values.length > 1 ? Math.sqrt(squares / (values.length - 1)) : 0;
+
+        Arrays.sort(values);
+        System.out.printf("%-20s %12.2f %12.2f %12.2f %12.2f %12.2f %12.2f %12.2f%n", name, mean, stddev,
+                values[0], percentile(values, 50), percentile(values, 90), percentile(values, 99),
+                values[values.length - 1]);
+    }
+
+    /** Nearest-rank percentile of sorted values */
+    private static double percentile(double[] sorted, double percent) {
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    public int[] getFinalDeliveryTimes() { return finalDeliveryTimes.clone(); }
+
+    public double[] getTotalDelays() { return totalDelays.clone(); }
+}
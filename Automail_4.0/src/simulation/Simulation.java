@@ -1,14 +1,18 @@
 package simulation;
 
 import automail.Automail;
-import automail.Building;
 import automail.MailPool;
+import automail.ServiceFeeCache;
+import automail.Robot;
 import com.unimelb.swen30006.wifimodem.WifiModem;
 import exceptions.ExcessiveDeliveryException;
 import exceptions.ItemTooHeavyException;
 import util.Configuration;
-import util.ReportDelivery;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 
 /**
@@ -16,23 +20,78 @@ import java.util.HashMap;
  * This class simulates the behaviour of AutoMail
  */
 public class Simulation {
-	
-    /** Constant for the mail generator */
-    private static IMailDelivery iMailDelivery;
-
 
     public static void main(String[] args) throws Exception {
     	
     	/** Load properties for simulation based on either default or a properties file.**/
-    	Configuration configuration = Configuration.getInstance();
+    	Configuration configuration = Configuration.load(Configuration.DEFAULT_FILE_NAME);
 
-        iMailDelivery = new ReportDelivery();
+        /** Everything from here on is reported through the event log of the simulation */
+        SimulationContext context = new SimulationContext(configuration);
+        EventLog eventLog = context.getEventLog();
 
-        /** This code section below is to save a random seed for generating mails.
-         * If a program argument is entered, the first argument will be a random seed.
-         * If not a random seed will be from a properties file. 
-         * Otherwise, no a random seed. */
+        HashMap<Boolean, Integer> seedMap = readSeed(args, configuration);
+        Integer seed = seedMap.get(true);
+        eventLog.info("#A Random Seed: " + (seed == null ? "null" : seed.toString()));
         
+        /** Install the modem & turn on the modem **/
+     	WifiModem wifiModem = WifiModem.getInstance(context.getBuilding().getMailroomLocationFloor());
+     	eventLog.info("Setting up Wifi Modem");
+     	eventLog.info(wifiModem.Turnon());
+
+        /**
+         * This code section is for running a simulation
+         */
+        try {
+            run(context, seedMap);
+        } catch (ExcessiveDeliveryException|ItemTooHeavyException e) {
+            eventLog.flush();
+            e.printStackTrace();
+            eventLog.info("Simulation unable to complete.");
+            eventLog.close();
+            System.exit(0);
+        }
+
+        printResults(context);
+        if (context.isFee_charging() && context.getServiceFeeAdaptor() instanceof ServiceFeeCache) {
+            eventLog.info(context.getServiceFeeAdaptor().toString());
+        }
+        if (context.isFee_charging() && (context.isFeeLookupAsync() || context.isStubModem())) {
+            eventLog.info(context.getFeeLookupPipeline().toString());
+        }
+        if (context.isFee_charging() && context.getFeeCircuitBreaker() != null) {
+            eventLog.info(context.getFeeCircuitBreaker().toString());
+        }
+        if (context.getRoutePlanner().isEnabled()) {
+            eventLog.info(context.getRoutePlanner().toString());
+        }
+        if (context.getTickProfiler().isEnabled()) {
+            for (String line : context.getTickProfiler().summary()) eventLog.info(line);
+            String profileFile = configuration.getProperty(Configuration.TICK_PROFILER_FILE_KEY);
+            context.getTickProfiler().writeJson(Paths.get(profileFile));
+            eventLog.info("Tick profile written to " + profileFile);
+        }
+        if (context.getDeliveryMetrics().isEnabled()) {
+            for (String line : context.getDeliveryMetrics().summary()) eventLog.info(line);
+            String metricsFile = configuration.getProperty(Configuration.DELIVERY_METRICS_FILE_KEY);
+            context.getDeliveryMetrics().writeJson(Paths.get(metricsFile));
+            eventLog.info("Delivery metrics written to " + metricsFile);
+        }
+        eventLog.info(wifiModem.Turnoff());
+        eventLog.close();
+        if (context.isBinaryEventLog()) {
+            System.out.println("Event log written to " + configuration.getProperty(Configuration.EVENT_LOG_FILE_KEY));
+        }
+    }
+
+    /**
+     * This code section below is to save a random seed for generating mails.
+     * If a program argument is entered, the first argument will be a random seed.
+     * If not a random seed will be from a properties file.
+     * Otherwise, no a random seed.
+     * @return the seed mapped from true, or false mapped to 0 if there is no seed
+     */
+    static HashMap<Boolean, Integer> readSeed(String[] args, Configuration configuration) {
         /** Used to see whether a seed is initialized or not */
         HashMap<Boolean, Integer> seedMap = new HashMap<>();
         if (args.length == 0 ) { // No arg
@@ -45,64 +104,132 @@ public class Simulation {
         } else { // Use arg seed - overrides property
         	seedMap.put(true, Integer.parseInt(args[0]));
         }
-        Integer seed = seedMap.get(true);
-        System.out.println("#A Random Seed: " + (seed == null ? "null" : seed.toString()));
+        return seedMap;
+    }
 
-        // setup the clock
-        Clock.MAIL_RECEVING_LENGTH = Integer.parseInt(configuration.getProperty(Configuration.MAIL_RECEIVING_LENGTH_KEY));
-        
-        /** Install the modem & turn on the modem **/
-     	WifiModem wifiModem = WifiModem.getInstance(Building.getInstance().getMailroomLocationFloor());
-     	System.out.println("Setting up Wifi Modem");
-     	System.out.println(wifiModem.Turnon());
+    /**
+     * Runs one simulation until all of its mail is delivered.
+     * Only touches the state owned by the context, so separate contexts can be run on separate threads.
+     * @param context the simulation to run
+     * @param seedMap the random seed for generating mails, see main
+     */
+    public static void run(SimulationContext context, HashMap<Boolean, Integer> seedMap)
+            throws ExcessiveDeliveryException, ItemTooHeavyException {
+        Configuration configuration = context.getConfiguration();
+        IMailDelivery iMailDelivery = context.getDelivery();
+        Clock clock = context.getClock();
 
-        /**
-         * This code section is for running a simulation
-         */
+        /** Connect to the BMS up front, so a fee cache can warm up before the first tick */
+        if (context.isFee_charging()) context.getServiceFeeAdaptor();
 
         /** Instantiate MailPool and Automail and FeeCharging capacity */
-     	MailPool mailPool = new MailPool();
-        boolean fee_charging = Boolean.parseBoolean(configuration.getProperty(Configuration.FEE_CHARGING_KEY));
-        int num_regular_robots = Integer.parseInt(configuration.getProperty(Configuration.REGULAR_ROBOTS_KEY));
-        int num_fast_robots = Integer.parseInt(configuration.getProperty(Configuration.FAST_ROBOTS_KEY));
-        int num_bulk_robots = Integer.parseInt(configuration.getProperty(Configuration.BULK_ROBOTS_KEY));
-        int total_robots = num_regular_robots + num_fast_robots + num_bulk_robots;
-        Automail automail = new Automail(mailPool, iMailDelivery, fee_charging,
-                                        num_regular_robots, num_fast_robots, num_bulk_robots);
+     	MailPool mailPool = new MailPool(context);
+        Automail automail = new Automail(context, mailPool);
+
+        /** Replay the mail of a trace, or generate it */
+        String traceFile = configuration.getProperty(Configuration.MAIL_TRACE_FILE_KEY).trim();
+        IMailSource mailSource;
+        if (!traceFile.isEmpty()) {
+            try {
+                mailSource = new TraceReplaySource(context, mailPool, Paths.get(traceFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            MailGenerator mailGenerator = createMailGenerator(context, mailPool, seedMap);
+            generateMail(mailGenerator, configuration);
+            mailSource = mailGenerator;
+        }
+        iMailDelivery.expectMailItems(mailSource.getMailToCreate());
+
+        /** Either step through every tick, or jump straight from one event to the next */
+        boolean eventDriven = "event".equalsIgnoreCase(configuration.getProperty(Configuration.SIMULATION_ENGINE_KEY));
+        EventDrivenEngine eventEngine = new EventDrivenEngine(context, automail, mailSource);
+        context.getDeliveryMetrics().setRobots(automail.getRobots());
+        SimulationMonitor monitor = context.getMonitor();
+        monitor.register();
+        monitor.started(mailSource.getMailToCreate());
+
+        try {
+            while(iMailDelivery.getDeliveredCount() != mailSource.getMailToCreate())
+            {
+            	// System.out.printf("Delivered: %4d; Created: %4d%n", MAIL_DELIVERED.size(), mailGenerator.MAIL_TO_CREATE);
+                if (eventDriven) eventEngine.skipToNextEvent();
+                runTick(context, automail, mailSource);
 
+                clock.Tick();
+                monitor.tick(clock.Time(), mailPool.size());
+            }
+        } finally {
+            context.close();
+            if (mailSource instanceof Closeable) {
+                try {
+                    ((Closeable) mailSource).close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param context the simulation the mail is generated for
+     * @param mailPool where mail items go on arrival
+     * @param seedMap the random seed for generating mails, see readSeed
+     * @return a generator with the configured amount and weight of mail
+     */
+    static MailGenerator createMailGenerator(SimulationContext context, MailPool mailPool,
+                                             HashMap<Boolean, Integer> seedMap) {
+        Configuration configuration = context.getConfiguration();
         int mail_to_create = Integer.parseInt(configuration.getProperty(Configuration.MAIL_TO_CREATE_KEY));
         int mail_max_weight = Integer.parseInt(configuration.getProperty(Configuration.MAIL_MAX_WEIGHT_KEY));
-        MailGenerator mailGenerator = new MailGenerator(mail_to_create, mail_max_weight, mailPool, seedMap);
-        
-        /** Generate all the mails */
-        mailGenerator.generateAllMail();
+        return new MailGenerator(context, mail_to_create, mail_max_weight, mailPool, seedMap);
+    }
 
-        while(iMailDelivery.getDeliveredItems().size() != mailGenerator.MAIL_TO_CREATE)
-        {
-        	// System.out.printf("Delivered: %4d; Created: %4d%n", MAIL_DELIVERED.size(), mailGenerator.MAIL_TO_CREATE);
-            mailGenerator.addToMailPool();
-            try {
-                automail.getMailPool().loadItemsToRobot();
-				for (int i=0; i < total_robots; i++)
-				{
-					automail.getRobots()[i].operate();
-				}
-			} catch (ExcessiveDeliveryException|ItemTooHeavyException e) {
-				e.printStackTrace();
-				System.out.println("Simulation unable to complete.");
-				System.exit(0);
-			}
-
-            Clock.Tick();
+    /**
+     * Generate all the mails, or only as they are about to arrive, as set by Mail_Generation
+     */
+    static void generateMail(MailGenerator mailGenerator, Configuration configuration) {
+        String generation = configuration.getProperty(Configuration.MAIL_GENERATION_KEY);
+        if ("streaming".equalsIgnoreCase(generation)) {
+            mailGenerator.startStreaming(Integer.parseInt(configuration.getProperty(Configuration.MAIL_STREAM_BUFFER_KEY)));
+        } else if ("parallel".equalsIgnoreCase(generation)) {
+            int threads = Integer.parseInt(configuration.getProperty(Configuration.MAIL_GENERATION_THREADS_KEY));
+            mailGenerator.generateAllMailParallel(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        } else {
+            mailGenerator.generateAllMail();
         }
+    }
 
-        printResults();
-        System.out.println(wifiModem.Turnoff());
+    /**
+     * Runs one time step: new mail arrives, waiting robots are loaded and every robot operates once.
+     * The tick profiler times each phase of the step, and the depth of the pool is counted for the metrics.
+     */
+    static void runTick(SimulationContext context, Automail automail, IMailSource mailSource)
+            throws ExcessiveDeliveryException, ItemTooHeavyException {
+        TickProfiler profiler = context.getTickProfiler();
+        profiler.tick();
+        profiler.begin(TickProfiler.Phase.ADD_TO_MAIL_POOL);
+        mailSource.addToMailPool();
+        profiler.end(TickProfiler.Phase.ADD_TO_MAIL_POOL);
+        profiler.begin(TickProfiler.Phase.LOAD_ITEMS_TO_ROBOT);
+        automail.getMailPool().loadItemsToRobot();
+        profiler.end(TickProfiler.Phase.LOAD_ITEMS_TO_ROBOT);
+        /** Robots operating do not change the pool, so this is its depth for the whole tick */
+        context.getDeliveryMetrics().poolDepth(context.getClock().Time(), automail.getMailPool().size(), 1);
+        for (Robot robot : automail.getRobots())
+        {
+            profiler.begin(TickProfiler.Phase.ROBOT_OPERATE);
+            robot.operate();
+            profiler.end(TickProfiler.Phase.ROBOT_OPERATE);
+        }
     }
 
-    public static void printResults(){
-        System.out.println("T: "+Clock.Time()+" | Simulation complete!");
-        System.out.println("Final Delivery time: "+Clock.Time());
-        System.out.printf("Delay: %.2f%n", iMailDelivery.getTotal_delay());
+    public static void printResults(SimulationContext context){
+        Clock clock = context.getClock();
+        EventLog eventLog = context.getEventLog();
+        eventLog.info("T: "+clock.Time()+" | Simulation complete!");
+        eventLog.info("Final Delivery time: "+clock.Time());
+        eventLog.info(String.format("Delay: %.2f", context.getDelivery().getTotal_delay()));
     }
 }
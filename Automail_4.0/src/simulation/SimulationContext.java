@@ -0,0 +1,285 @@
+package simulation;
+
+import automail.BMS;
+import automail.BMSAdaptor;
+import automail.Building;
+import automail.CircuitBreaker;
+import automail.FeeLookupPipeline;
+import automail.RobotBaseRate;
+import automail.RoutePlanner;
+import automail.ServiceFeeCache;
+import automail.StubModem;
+import util.Configuration;
+import util.ReportDelivery;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * New Class: Team 03
+ * Holds all the state of one simulation run: configuration, building, clock, delivery report, service fee lookup,
+ * robot fleet settings and running counters.
+ * Nothing is shared between contexts (apart from the read-only configuration), so independent simulations can
+ * run side by side on separate threads.
+ */
+public class SimulationContext {
+
+    private final Configuration configuration;
+    private final Building building;
+    private final Clock clock;
+    private final EventLog eventLog;
+    private final IMailDelivery delivery;
+    private final TickProfiler tickProfiler;
+    private final DeliveryMetrics deliveryMetrics;
+    private final SimulationMonitor monitor;
+    private final RoutePlanner routePlanner;
+
+    private final boolean fee_charging;
+    private final int numRegRobots;
+    private final int numFastRobots;
+    private final int numBulkRobots;
+
+    /** Total operating time of each robot type, indexed by RobotBaseRate ordinal */
+    private final int[] total_operating_time = new int[RobotBaseRate.values().length];
+    private BMSAdaptor serviceFeeAdaptor = null;
+    private FeeLookupPipeline feeLookupPipeline = null;
+    private CircuitBreaker feeCircuitBreaker = null;
+    private ExecutorService feeLookupExecutor = null;
+    private int mailItemCount = 0;
+
+    /**
+     * Sets up a simulation that logs as set by Event_Log, to the standard output or to a binary event log
+     * @param configuration the loaded simulation properties
+     */
+    public SimulationContext(Configuration configuration) {
+        this(configuration, createEventLog(configuration));
+    }
+
+    /**
+     * @param configuration the loaded simulation properties
+     * @param out where the simulation log is written as text
+     */
+    public SimulationContext(Configuration configuration, PrintStream out) {
+        this(configuration, new TextEventLog(out));
+    }
+
+    /**
+     * @param configuration the loaded simulation properties
+     * @param eventLog where the simulation log is written
+     */
+    public SimulationContext(Configuration configuration, EventLog eventLog) {
+        this.configuration = configuration;
+        this.building = Building.fromConfiguration(configuration);
+        this.clock = new Clock(Integer.parseInt(configuration.getProperty(Configuration.MAIL_RECEIVING_LENGTH_KEY)));
+        this.eventLog = eventLog;
+
+        this.fee_charging = Boolean.parseBoolean(configuration.getProperty(Configuration.FEE_CHARGING_KEY));
+        this.numRegRobots = Integer.parseInt(configuration.getProperty(Configuration.REGULAR_ROBOTS_KEY));
+        this.numFastRobots = Integer.parseInt(configuration.getProperty(Configuration.FAST_ROBOTS_KEY));
+        this.numBulkRobots = Integer.parseInt(configuration.getProperty(Configuration.BULK_ROBOTS_KEY));
+
+        this.delivery = new ReportDelivery(this);
+        this.tickProfiler = new TickProfiler(Boolean.parseBoolean(configuration.getProperty(Configuration.TICK_PROFILER_KEY)));
+        this.deliveryMetrics = new DeliveryMetrics(configuration, building);
+        this.routePlanner = new RoutePlanner(configuration, building);
+        this.monitor = new SimulationMonitor(Boolean.parseBoolean(configuration.getProperty(Configuration.SIMULATION_MONITOR_KEY)));
+    }
+
+    /**
+     * Event_Log selects text printed on the simulation thread, text printed by a background thread (async) or
+     * a binary log. A binary event log starts with the lines printed when the configuration was loaded, so
+     * that the decoded log is the whole report. Log_Level then selects how much is logged.
+     */
+    private static EventLog createEventLog(Configuration configuration) {
+        String kind = configuration.getProperty(Configuration.EVENT_LOG_KEY);
+        EventLog eventLog;
+        if ("binary".equalsIgnoreCase(kind)) {
+            try {
+                eventLog = new BinaryEventLog(Paths.get(configuration.getProperty(Configuration.EVENT_LOG_FILE_KEY)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (String line : configuration.getSummary()) eventLog.info(line);
+        } else if ("async".equalsIgnoreCase(kind)) {
+            /** System.out is flushed first, so the report continues after the configuration summary */
+            System.out.flush();
+            eventLog = new AsyncTextEventLog(new FileOutputStream(FileDescriptor.out),
+                    Integer.parseInt(configuration.getProperty(Configuration.EVENT_LOG_BUFFER_KEY)));
+        } else {
+            eventLog = new TextEventLog(System.out);
+        }
+
+        FilteredEventLog.Level level = FilteredEventLog.Level.valueOf(
+                configuration.getProperty(Configuration.LOG_LEVEL_KEY).trim().toUpperCase());
+        if (level != FilteredEventLog.Level.FULL) {
+            eventLog = new FilteredEventLog(eventLog, level,
+                    Integer.parseInt(configuration.getProperty(Configuration.LOG_SAMPLE_RATE_KEY)));
+        }
+        return eventLog;
+    }
+
+    /**
+     * Get the service fee lookup of this simulation, connecting to the BMS on first use.
+     * If a breaker failure threshold is configured the modem calls go through a CircuitBreaker, and if a fee
+     * cache time-to-live is configured the BMS is put behind a ServiceFeeCache.
+     * @return the service fee adaptor, or null if the BMS could not be reached
+     */
+    public BMSAdaptor getServiceFeeAdaptor() {
+        if (serviceFeeAdaptor == null) {
+            BMS bms;
+            if (isStubModem()) {
+                double failureRate = Double.parseDouble(configuration.getProperty(Configuration.STUB_MODEM_FAILURE_RATE_KEY));
+                long latency = Long.parseLong(configuration.getProperty(Configuration.STUB_MODEM_LATENCY_KEY));
+                bms = new BMS(new StubModem(latency, failureRate, 0));
+            } else {
+                try {
+                    bms = new BMS(building);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+            int failureThreshold = Integer.parseInt(configuration.getProperty(Configuration.FEE_BREAKER_FAILURE_THRESHOLD_KEY));
+            if (failureThreshold > 0) {
+                feeCircuitBreaker = new CircuitBreaker(failureThreshold,
+                        Long.parseLong(configuration.getProperty(Configuration.FEE_BREAKER_OPEN_MILLIS_KEY)),
+                        Long.parseLong(configuration.getProperty(Configuration.FEE_BREAKER_TIMEOUT_MILLIS_KEY)),
+                        Integer.parseInt(configuration.getProperty(Configuration.FEE_BREAKER_MAX_RETRIES_KEY)),
+                        Double.parseDouble(configuration.getProperty(Configuration.FEE_BREAKER_RETRY_RATIO_KEY)));
+                bms.setCircuitBreaker(feeCircuitBreaker);
+            }
+            serviceFeeAdaptor = bms;
+            int ttl = Integer.parseInt(configuration.getProperty(Configuration.FEE_CACHE_TTL_KEY));
+            String floorTtls = configuration.getProperty(Configuration.FEE_CACHE_TTL_FLOORS_KEY);
+            if (ttl > 0 || !floorTtls.trim().isEmpty()) {
+                ServiceFeeCache cache = new ServiceFeeCache(serviceFeeAdaptor, clock, building,
+                        ServiceFeeCache.parseTtl(ttl, floorTtls, building));
+                cache.setRefresher(getFeeLookupExecutor());
+                if (Boolean.parseBoolean(configuration.getProperty(Configuration.FEE_CACHE_WARMUP_KEY))) {
+                    cache.warmUp();
+                }
+                serviceFeeAdaptor = cache;
+            }
+        }
+        return serviceFeeAdaptor;
+    }
+
+    /**
+     * Get the service fee lookups of this simulation, made in the background if Fee_Lookup_Async is set
+     * @return the fee lookup pipeline
+     */
+    public FeeLookupPipeline getFeeLookupPipeline() {
+        if (feeLookupPipeline == null) {
+            feeLookupPipeline = new FeeLookupPipeline(getServiceFeeAdaptor(),
+                    isFeeLookupAsync() ? getFeeLookupExecutor() : null);
+        }
+        return feeLookupPipeline;
+    }
+
+    /**
+     * @return the breaker guarding the modem, or null if none is configured
+     */
+    public CircuitBreaker getFeeCircuitBreaker() { return feeCircuitBreaker; }
+
+    private ExecutorService getFeeLookupExecutor() {
+        if (feeLookupExecutor == null) {
+            int threads = Integer.parseInt(configuration.getProperty(Configuration.FEE_LOOKUP_THREADS_KEY));
+            feeLookupExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "fee-lookup");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return feeLookupExecutor;
+    }
+
+    /**
+     * Release the background threads of this simulation once it has finished
+     */
+    public void close() {
+        if (feeLookupExecutor != null) feeLookupExecutor.shutdown();
+        monitor.unregister();
+    }
+
+    /**
+     * Increment operating time of a robot type
+     * @param type the robot type
+     * @param ticks number of time steps spent operating
+     */
+    public void incrementOperatingTime(RobotBaseRate type, int ticks) {
+        total_operating_time[type.ordinal()] += ticks;
+        monitor.operated(type, ticks);
+    }
+
+    /**
+     * @param type the robot type
+     * @return total operating time of all robots of that type so far
+     */
+    public int getOperatingTime(RobotBaseRate type) {
+        return total_operating_time[type.ordinal()];
+    }
+
+    /**
+     * Allocate the identifier of a newly created mail item, counting up from 0
+     * @return the next mail item identifier
+     */
+    public int nextMailItemId() {
+        return mailItemCount++;
+    }
+
+    /**
+     * Allocate the identifiers of a block of mail items created later on
+     * @param count number of mail items
+     * @return the first identifier of the block, the others follow on from it
+     */
+    public int reserveMailItemIds(int count) {
+        int first = mailItemCount;
+        mailItemCount += count;
+        return first;
+    }
+
+
+    /********************************************* Getters and Setters **********************************************/
+
+    public Configuration getConfiguration() { return configuration; }
+
+    public Building getBuilding() { return building; }
+
+    public Clock getClock() { return clock; }
+
+    public EventLog getEventLog() { return eventLog; }
+
+    public boolean isBinaryEventLog() {
+        return "binary".equalsIgnoreCase(configuration.getProperty(Configuration.EVENT_LOG_KEY));
+    }
+
+    public IMailDelivery getDelivery() { return delivery; }
+
+    public TickProfiler getTickProfiler() { return tickProfiler; }
+
+    public DeliveryMetrics getDeliveryMetrics() { return deliveryMetrics; }
+
+    public SimulationMonitor getMonitor() { return monitor; }
+
+    public RoutePlanner getRoutePlanner() { return routePlanner; }
+
+    public boolean isFee_charging() { return fee_charging; }
+
+    public boolean isFeeLookupAsync() {
+        return Boolean.parseBoolean(configuration.getProperty(Configuration.FEE_LOOKUP_ASYNC_KEY));
+    }
+
+    public boolean isStubModem() {
+        return "stub".equalsIgnoreCase(configuration.getProperty(Configuration.FEE_MODEM_KEY));
+    }
+
+    public int getNumRegRobots() { return numRegRobots; }
+    public int getNumFastRobots() { return numFastRobots; }
+    public int getNumBulkRobots() { return numBulkRobots; }
+}
@@ -0,0 +1,160 @@
+package simulation;
+
+import automail.RobotBaseRate;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * New Class: Team 03
+ * Publishes the progress of a simulation as an MBean while it runs, when Simulation_Monitor is on.
+ *
+ * The simulation thread only adds to LongAdder and DoubleAdder counters or writes volatile fields once per tick,
+ * so it never waits for a JMX client reading them. The MBean is registered as
+ * automail:type=SimulationMonitor,id=N, one per simulation context, and unregistered when the context is closed.
+ * When the monitor is off every update returns straight away and nothing is registered.
+ */
+public class SimulationMonitor implements SimulationMonitorMBean {
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final boolean enabled;
+    private ObjectName name = null;
+
+    private volatile int time = 0;
+    private volatile int mailPoolDepth = 0;
+    private volatile int mailToCreate = 0;
+    private volatile long startNanos = System.nanoTime();
+
+    private final LongAdder loaded = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final DoubleAdder totalDelay = new DoubleAdder();
+    private final LongAdder[] operatingTime = new LongAdder[RobotBaseRate.values().length];
+
+    /**
+     * @param enabled false for a monitor that publishes nothing
+     */
+    public SimulationMonitor(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < operatingTime.length; i++) operatingTime[i] = new LongAdder();
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Register the MBean, if the monitor is on
+     */
+    public void register() {
+        if (!enabled || name != null) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName("automail:type=SimulationMonitor,id=" + NEXT_ID.getAndIncrement());
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the simulation monitor", e);
+        }
+    }
+
+    /**
+     * Unregister the MBean, if it was registered
+     */
+    public void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister the simulation monitor", e);
+        }
+        name = null;
+    }
+
+    /**
+     * @return the name the MBean is registered under, or null if it is not registered
+     */
+    public ObjectName getName() { return name; }
+
+    /**
+     * Mark the start of the run
+     * @param mailToCreate number of mail items of the run
+     */
+    public void started(int mailToCreate) {
+        if (!enabled) return;
+        this.mailToCreate = mailToCreate;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Publish the state at the end of a tick
+     * @param time the time step the simulation has reached
+     * @param mailPoolDepth number of mail items waiting in the pool
+     */
+    public void tick(int time, int mailPoolDepth) {
+        if (!enabled) return;
+        this.time = time;
+        this.mailPoolDepth = mailPoolDepth;
+    }
+
+    /**
+     * @param items number of mail items loaded into robots
+     */
+    public void loaded(int items) {
+        if (enabled && items > 0) loaded.add(items);
+    }
+
+    /**
+     * @param delay the delay of a delivered item, as added to the total delay
+     */
+    public void delivered(double delay) {
+        if (!enabled) return;
+        delivered.increment();
+        totalDelay.add(delay);
+    }
+
+    public void operated(RobotBaseRate type, int ticks) {
+        if (enabled) operatingTime[type.ordinal()].add(ticks);
+    }
+
+    @Override
+    public int getTime() { return time; }
+
+    @Override
+    public int getMailPoolDepth() { return mailPoolDepth; }
+
+    @Override
+    public long getItemsInFlight() { return Math.max(0, loaded.sum() - delivered.sum()); }
+
+    @Override
+    public int getMailToCreate() { return mailToCreate; }
+
+    @Override
+    public long getDeliveredCount() { return delivered.sum(); }
+
+    @Override
+    public double getDeliveryRatePerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0 : delivered.sum() / seconds;
+    }
+
+    @Override
+    public double getDeliveryRatePerTick() {
+        int ticks = time;
+        return ticks <= 0 ? 0 : (double) delivered.sum() / ticks;
+    }
+
+    @Override
+    public double getTotalDelay() { return totalDelay.sum(); }
+
+    @Override
+    public long getRegularOperatingTime() { return operatingTime[RobotBaseRate.REGULAR.ordinal()].sum(); }
+
+    @Override
+    public long getFastOperatingTime() { return operatingTime[RobotBaseRate.FAST.ordinal()].sum(); }
+
+    @Override
+    public long getBulkOperatingTime() { return operatingTime[RobotBaseRate.BULK.ordinal()].sum(); }
+}
@@ -0,0 +1,37 @@
+package simulation;
+
+/**
+ * New Class: Team 03
+ * Progress of a running simulation, as shown by JMX clients such as JConsole
+ */
+public interface SimulationMonitorMBean {
+
+    /** @return the current time step of the simulation */
+    int getTime();
+
+    /** @return number of mail items waiting in the mail pool */
+    int getMailPoolDepth();
+
+    /** @return number of mail items loaded into robot tubes and hands but not yet delivered */
+    long getItemsInFlight();
+
+    /** @return number of mail items of the run, 0 until the mail is known */
+    int getMailToCreate();
+
+    long getDeliveredCount();
+
+    /** @return deliveries per second of wall time since the run started */
+    double getDeliveryRatePerSecond();
+
+    /** @return deliveries per time step of the simulation */
+    double getDeliveryRatePerTick();
+
+    /** @return the total delay so far, as reported at the end of the run */
+    double getTotalDelay();
+
+    long getRegularOperatingTime();
+
+    long getFastOperatingTime();
+
+    long getBulkOperatingTime();
+}
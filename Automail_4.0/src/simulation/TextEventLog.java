@@ -0,0 +1,76 @@
+package simulation;
+
+import automail.FeeCharge;
+import automail.MailItem;
+import automail.Robot;
+
+import java.io.PrintStream;
+
+/**
+ * New Class: Team 03
+ * Prints the events of a simulation in the text format of the simulation report
+ */
+public class TextEventLog implements EventLog {
+
+    private final PrintStream out;
+
+    /**
+     * @param out where the report is printed, which is flushed but not closed by close
+     */
+    public TextEventLog(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void mailArrived(int tick, MailItem mailItem) {
+        printMailArrived(tick, mailItem.toString());
+    }
+
+    @Override
+    public void stateChanged(int tick, Robot robot, Robot.RobotState from, Robot.RobotState to) {
+        printStateChanged(tick, robot.getIdTube(), from, to);
+    }
+
+    @Override
+    public void deliveryStarted(int tick, Robot robot, MailItem mailItem) {
+        printDeliveryStarted(tick, robot.getIdTube(), mailItem.toString());
+    }
+
+    @Override
+    public void delivered(int tick, Robot robot, int deliveredCount, MailItem mailItem, FeeCharge fee) {
+        printDelivered(tick, robot.getIdTube(), deliveredCount, mailItem.toString(), fee == null ? "" : fee.toString());
+    }
+
+    @Override
+    public void info(String line) {
+        out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        out.flush();
+    }
+
+    /** The lines below are also printed by EventLogDecoder, from the recorded fields */
+
+    void printMailArrived(int tick, String mailItem) {
+        out.printf("T: %3d > new addToPool [%s]%n", tick, mailItem);
+    }
+
+    void printStateChanged(int tick, String robotIdTube, Robot.RobotState from, Robot.RobotState to) {
+        out.printf("T: %3d > %7s changed from %s to %s%n", tick, robotIdTube, from, to);
+    }
+
+    void printDeliveryStarted(int tick, String robotIdTube, String mailItem) {
+        out.printf("T: %3d > %7s-> [%s]%n", tick, robotIdTube, mailItem);
+    }
+
+    void printDelivered(int tick, String robotIdTube, int deliveredCount, String mailItem, String fee) {
+        out.printf("T: %3d > %7s-> Delivered(%4d) [%s%s]%n", tick, robotIdTube, deliveredCount, mailItem, fee);
+    }
+}
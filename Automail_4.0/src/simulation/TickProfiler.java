@@ -0,0 +1,194 @@
+package simulation;
+
+import util.Histogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * New Class: Team 03
+ * Measures where the time of a tick goes, phase by phase, when Tick_Profiler is on.
+ *
+ * The code of a phase is wrapped in begin and end calls. For each phase the profiler counts the calls, records
+ * their wall time in a Histogram, and adds up the bytes allocated by the simulation thread and the garbage
+ * collections that ran meanwhile. Phases nest, e.g. a delivery happens inside Robot.operate, and the figures of
+ * a phase include those of the phases inside it. When the profiler is off begin and end return straight away.
+ */
+public class TickProfiler {
+
+    /** The profiled phases of a tick */
+    public enum Phase {
+        ADD_TO_MAIL_POOL("IMailSource.addToMailPool"),
+        LOAD_ITEMS_TO_ROBOT("MailPool.loadItemsToRobot"),
+        ROBOT_OPERATE("Robot.operate"),
+        DELIVER("IMailDelivery.deliver"),
+        GET_SERVICE_FEE("FeeLookupPipeline.getServiceFee");
+
+        private final String label;
+
+        Phase(String label) { this.label = label; }
+
+        public String getLabel() { return label; }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    /** Deepest nesting of phases, one of each */
+    private static final int MAX_DEPTH = PHASES.length;
+
+    private final boolean enabled;
+    private final com.sun.management.ThreadMXBean threads;
+    private final GarbageCollectorMXBean[] collectors;
+
+    private final Histogram[] nanos = new Histogram[PHASES.length];
+    private final long[] allocatedBytes = new long[PHASES.length];
+    private final long[] collections = new long[PHASES.length];
+    private final long[] collectionMillis = new long[PHASES.length];
+    private long ticks = 0;
+
+    /** Start of each phase that has begun but not ended, innermost last */
+    private final Phase[] openPhases = new Phase[MAX_DEPTH];
+    private final long[] startNanos = new long[MAX_DEPTH];
+    private final long[] startBytes = new long[MAX_DEPTH];
+    private final long[] startCollections = new long[MAX_DEPTH];
+    private final long[] startCollectionMillis = new long[MAX_DEPTH];
+    private int depth = 0;
+
+    /**
+     * @param enabled false for a profiler that records nothing
+     */
+    public TickProfiler(boolean enabled) {
+        this.enabled = enabled;
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (enabled && threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            this.threads = (com.sun.management.ThreadMXBean) threadBean;
+            this.threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.threads = null;
+        }
+        this.collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+        for (int i = 0; i < PHASES.length; i++) nanos[i] = new Histogram();
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Count a tick of the simulation loop
+     */
+    public void tick() {
+        if (enabled) ticks++;
+    }
+
+    /**
+     * Start timing a phase, to be followed by end of the same phase on the same thread
+     */
+    public void begin(Phase phase) {
+        if (!enabled) return;
+        if (depth == MAX_DEPTH) throw new IllegalStateException("Phases nested too deeply at " + phase);
+        openPhases[depth] = phase;
+        startBytes[depth] = allocatedBytes();
+        startCollections[depth] = collections();
+        startCollectionMillis[depth] = collectionMillis();
+        startNanos[depth] = System.nanoTime();
+        depth++;
+    }
+
+    /**
+     * Stop timing the innermost phase
+     */
+    public void end(Phase phase) {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        if (depth == 0 || openPhases[depth - 1] != phase) throw new IllegalStateException("Phase " + phase + " was not begun");
+        depth--;
+        int index = phase.ordinal();
+        nanos[index].record(now - startNanos[depth]);
+        allocatedBytes[index] += allocatedBytes() - startBytes[depth];
+        collections[index] += collections() - startCollections[depth];
+        collectionMillis[index] += collectionMillis() - startCollectionMillis[depth];
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) total += Math.max(0, collector.getCollectionCount());
+        return total;
+    }
+
+    private long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) total += Math.max(0, collector.getCollectionTime());
+        return total;
+    }
+
+    public long getTicks() { return ticks; }
+
+    /**
+     * @return the call durations of a phase in nanoseconds
+     */
+    public Histogram getNanos(Phase phase) { return nanos[phase.ordinal()]; }
+
+    /**
+     * @return bytes allocated by the simulation thread during a phase, 0 if the JVM does not count them
+     */
+    public long getAllocatedBytes(Phase phase) { return allocatedBytes[phase.ordinal()]; }
+
+    public long getCollections(Phase phase) { return collections[phase.ordinal()]; }
+    public long getCollectionMillis(Phase phase) { return collectionMillis[phase.ordinal()]; }
+
+    /**
+     * @return one line per phase with its calls, wall time, percentiles, allocation and garbage collections
+     */
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Tick profile: %d ticks (times include nested phases)", ticks));
+        lines.add(String.format("%-32s %12s %12s %10s %10s %10s %12s %14s %6s %8s", "Phase", "Calls", "Total ms",
+                "Mean ns", "p50 ns", "p99 ns", "Max ns", "Alloc bytes", "GCs", "GC ms"));
+        for (Phase phase : PHASES) {
+            Histogram histogram = getNanos(phase);
+            lines.add(String.format("%-32s %12d %12.1f %10.0f %10d %10d %12d %14d %6d %8d", phase.getLabel(),
+                    histogram.getCount(), histogram.getTotal() / 1e6, histogram.getMean(),
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99), histogram.getMax(),
+                    getAllocatedBytes(phase), getCollections(phase), getCollectionMillis(phase)));
+        }
+        return lines;
+    }
+
+    /**
+     * Write the profile as JSON
+     * @param path the report file, overwritten
+     */
+    public void writeJson(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("{");
+            out.printf(Locale.ROOT, "  \"ticks\": %d,%n", ticks);
+            out.println("  \"phases\": [");
+            for (int i = 0; i < PHASES.length; i++) {
+                Phase phase = PHASES[i];
+                Histogram histogram = getNanos(phase);
+                out.printf(Locale.ROOT, "    {\"phase\": \"%s\", \"calls\": %d, \"totalNanos\": %d, \"meanNanos\": %.1f, "
+                                + "\"p50Nanos\": %d, \"p90Nanos\": %d, \"p99Nanos\": %d, \"p999Nanos\": %d, "
+                                + "\"maxNanos\": %d, \"allocatedBytes\": %d, \"gcCount\": %d, \"gcMillis\": %d}%s%n",
+                        phase.getLabel(), histogram.getCount(), histogram.getTotal(), histogram.getMean(),
+                        histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                        histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMax(),
+                        getAllocatedBytes(phase), getCollections(phase), getCollectionMillis(phase),
+                        i + 1 < PHASES.length ? "," : "");
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package simulation;
+
+import automail.Building;
+import automail.MailItem;
+import automail.MailPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * New Class: Team 03
+ * Replays the mail of a trace written by MailTraceWriter.
+ *
+ * The file is memory-mapped one segment at a time, so a trace of any size is read through the page cache
+ * instead of being loaded into the heap. Records are read in place and a MailItem is only created when its
+ * mail arrives. Mail item identifiers are handed out in trace order. Mail of a version 1 trace has priority 0.
+ */
+public class TraceReplaySource implements IMailSource, Closeable {
+
+    /** Records mapped at a time, a whole number of records well below the 2GB limit of a mapping */
+    private static final int SEGMENT_RECORDS = 1 << 24;
+
+    private final SimulationContext context;
+    private final MailPool mailPool;
+    private final FileChannel channel;
+    private final int records;
+    private final int recordBytes;
+    private final int firstMailItemId;
+
+    private MappedByteBuffer segment;
+    private int segmentIndex = -1;
+    /** The next record to arrive */
+    private int next = 0;
+    private final ArrayList<MailItem> arrivals = new ArrayList<>();
+
+    /**
+     * Open a trace and check its header
+     * @param context the simulation the mail arrives in
+     * @param mailPool where mail items go on arrival
+     * @param path the trace file
+     * @throws IOException if the file cannot be read or is not a mail trace
+     */
+    public TraceReplaySource(SimulationContext context, MailPool mailPool, Path path) throws IOException {
+        this.context = context;
+        this.mailPool = mailPool;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(MailTraceWriter.HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < MailTraceWriter.HEADER_BYTES || header.getInt() != MailTraceWriter.MAGIC) {
+                throw new IOException(path + " is not a mail trace");
+            }
+            int version = header.getInt();
+            if (version == MailTraceWriter.VERSION) {
+                this.recordBytes = MailTraceWriter.RECORD_BYTES;
+            } else if (version == 1) {
+                this.recordBytes = MailTraceWriter.VERSION_1_RECORD_BYTES;
+            } else {
+                throw new IOException(path + " has unsupported trace version " + version);
+            }
+            long count = header.getLong();
+            if (count < 0 || count > Integer.MAX_VALUE) throw new IOException(path + " has " + count + " records");
+            if (channel.size() < MailTraceWriter.HEADER_BYTES + count * recordBytes) {
+                throw new IOException(path + " is truncated");
+            }
+            this.records = (int) count;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.firstMailItemId = context.reserveMailItemIds(records);
+    }
+
+    /**
+     * Map the segment holding a record, if it is not mapped already
+     * @param record index of the record
+     * @return offset of the record in the mapped segment
+     */
+    private int locate(int record) {
+        int index = record / SEGMENT_RECORDS;
+        if (index != segmentIndex) {
+            long first = (long) index * SEGMENT_RECORDS;
+            long length = Math.min(SEGMENT_RECORDS, records - first) * recordBytes;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        MailTraceWriter.HEADER_BYTES + first * recordBytes, length);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to map mail trace", e);
+            }
+            segmentIndex = index;
+        }
+        return (record % SEGMENT_RECORDS) * recordBytes;
+    }
+
+    private int arrivalTime(int record) {
+        int offset = locate(record);
+        return segment.getInt(offset);
+    }
+
+    @Override
+    public int getMailToCreate() { return records; }
+
+    /**
+     * Put the records arriving by the current clock time into the MailPool
+     */
+    @Override
+    public void addToMailPool() {
+        Clock clock = context.getClock();
+        Building building = context.getBuilding();
+        arrivals.clear();
+        while (next < records && arrivalTime(next) <= clock.Time()) {
+            int offset = locate(next);
+            int destinationFloor = segment.getInt(offset + 4);
+            if (destinationFloor < building.getLowestFloor()
+                    || destinationFloor >= building.getLowestFloor() + building.getnFloors()) {
+                throw new IllegalStateException("Trace record " + next + " is for floor " + destinationFloor
+                        + " which is not in the building");
+            }
+            int priority = recordBytes == MailTraceWriter.RECORD_BYTES ? segment.getInt(offset + 12) : 0;
+            MailItem mailItem = new MailItem(destinationFloor, segment.getInt(offset), segment.getInt(offset + 8),
+                    firstMailItemId + next, priority);
+            context.getEventLog().mailArrived(clock.Time(), mailItem);
+            arrivals.add(mailItem);
+            next++;
+        }
+        if (!arrivals.isEmpty()) {
+            mailPool.addAllToPool(arrivals);
+        }
+    }
+
+    @Override
+    public int nextArrivalTime(int time) {
+        if (next >= records) return -1;
+        return Math.max(time, arrivalTime(next));
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment = null;
+        channel.close();
+    }
+}
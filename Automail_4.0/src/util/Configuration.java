@@ -1,13 +1,23 @@
 package util;
 
-import simulation.Clock;
-
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
+/**
+ * Modified Class: Team 03
+ * Simulation properties. Loaded once and then only read, so one instance can be shared by many simulations.
+ */
 public class Configuration extends Properties
 {
+    public static final String DEFAULT_FILE_NAME = "automail.properties";
+
+    /** The lines printed by load, which a binary event log repeats */
+    private final List<String> summary = new ArrayList<>();
+
     public static final String SEED_KEY = "Seed";
 
     public static final String REGULAR_ROBOTS_KEY = "Regular_Robots";
@@ -18,42 +28,80 @@ public class Configuration extends Properties
     public static final String MAIL_MAX_WEIGHT_KEY = "Mail_Max_Weight";
     public static final String MAIL_RECEIVING_LENGTH_KEY = "Mail_Receiving_Length";
     public static final String FEE_CHARGING_KEY = "Fee_Charging";
+    public static final String SIMULATION_ENGINE_KEY = "Simulation_Engine";
+    public static final String MAIL_GENERATION_KEY = "Mail_Generation";
+    public static final String MAIL_STREAM_BUFFER_KEY = "Mail_Stream_Buffer";
+    public static final String MAIL_GENERATION_THREADS_KEY = "Mail_Generation_Threads";
+    public static final String MAIL_TRACE_FILE_KEY = "Mail_Trace_File";
+    public static final String EVENT_LOG_KEY = "Event_Log";
+    public static final String EVENT_LOG_FILE_KEY = "Event_Log_File";
+    public static final String EVENT_LOG_BUFFER_KEY = "Event_Log_Buffer";
+    public static final String LOG_LEVEL_KEY = "Log_Level";
+    public static final String LOG_SAMPLE_RATE_KEY = "Log_Sample_Rate";
+    public static final String FEE_CACHE_TTL_KEY = "Fee_Cache_TTL";
+    public static final String FEE_CACHE_TTL_FLOORS_KEY = "Fee_Cache_TTL_Floors";
+    public static final String FEE_CACHE_WARMUP_KEY = "Fee_Cache_Warmup";
+    public static final String FEE_LOOKUP_ASYNC_KEY = "Fee_Lookup_Async";
+    public static final String FEE_LOOKUP_THREADS_KEY = "Fee_Lookup_Threads";
+    public static final String FEE_MODEM_KEY = "Fee_Modem";
+    public static final String STUB_MODEM_LATENCY_KEY = "Stub_Modem_Latency";
+    public static final String STUB_MODEM_FAILURE_RATE_KEY = "Stub_Modem_Failure_Rate";
+    public static final String FEE_BREAKER_FAILURE_THRESHOLD_KEY = "Fee_Breaker_Failure_Threshold";
+    public static final String FEE_BREAKER_OPEN_MILLIS_KEY = "Fee_Breaker_Open_Millis";
+    public static final String FEE_BREAKER_TIMEOUT_MILLIS_KEY = "Fee_Breaker_Timeout_Millis";
+    public static final String FEE_BREAKER_MAX_RETRIES_KEY = "Fee_Breaker_Max_Retries";
+    public static final String FEE_BREAKER_RETRY_RATIO_KEY = "Fee_Breaker_Retry_Ratio";
+    public static final String TICK_PROFILER_KEY = "Tick_Profiler";
+    public static final String TICK_PROFILER_FILE_KEY = "Tick_Profiler_File";
+    public static final String DELIVERY_METRICS_KEY = "Delivery_Metrics";
+    public static final String DELIVERY_METRICS_FILE_KEY = "Delivery_Metrics_File";
+    public static final String DELIVERY_METRICS_WEIGHT_BAND_KEY = "Delivery_Metrics_Weight_Band";
+    public static final String SIMULATION_MONITOR_KEY = "Simulation_Monitor";
+    public static final String DISPATCH_STRATEGY_KEY = "Dispatch_Strategy";
+    public static final String ROUTE_PLANNING_KEY = "Route_Planning";
+    public static final String DISPATCH_COST_WEIGHT_KEY = "Dispatch_Cost_Weight";
+    public static final String PRIORITY_AGING_RATE_KEY = "Priority_Aging_Rate";
+    public static final String PRIORITY_WEIGHTED_DELAY_KEY = "Priority_Weighted_Delay";
 
     public static final String N_FLOORS_KEY = "Floors";
     public static final String LOWEST_FLOOR_KEY = "Lowest_Floor";
     public static final String MAILROOM_LOCATION_FLOOR_KEY = "Mailroom_Location_Floor";
 
-    private static Configuration configuration = null;
-
-    public static Configuration getInstance()
+    /**
+     * Read the properties file on top of the default properties
+     * @param fileName the properties file to read
+     * @return the loaded configuration
+     * @throws IOException if the file cannot be read
+     */
+    public static Configuration load(String fileName) throws IOException
     {
-        if(configuration == null)
-        {
-            configuration = new Configuration();
-
-            try {
-                configuration.setUp();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        Configuration configuration = new Configuration();
+        configuration.setUp(fileName);
+        return configuration;
+    }
 
+    /**
+     * Build a configuration from the default properties and the given properties, without reading a file,
+     * e.g. for benchmarks
+     * @param properties properties on top of the defaults, which must include those without a default
+     * @return the configuration
+     */
+    public static Configuration of(Properties properties)
+    {
+        Configuration configuration = new Configuration();
+        configuration.setDefaults();
+        configuration.putAll(properties);
         return configuration;
     }
 
-    private void setUp() throws IOException 
+    private void setUp(String fileName) throws IOException 
     {
-        // Default properties
-        setProperty(N_FLOORS_KEY, "10");
-        setProperty(LOWEST_FLOOR_KEY, "1");
-        setProperty(MAILROOM_LOCATION_FLOOR_KEY, "1");
-        setProperty(MAIL_TO_CREATE_KEY, "80");
-        setProperty(FEE_CHARGING_KEY, "false");
+        setDefaults();
 
         // Read properties
         FileReader inStream = null;
         try {
-            inStream = new FileReader("automail.properties");
+            inStream = new FileReader(fileName);
             load(inStream);
         } finally {
             if (inStream != null) {
@@ -61,35 +109,98 @@ public class Configuration extends Properties
             }
         }
 
+        printSummary();
+    }
+
+    private void setDefaults()
+    {
+        // Default properties
+        setProperty(N_FLOORS_KEY, "10");
+        setProperty(LOWEST_FLOOR_KEY, "1");
+        setProperty(MAILROOM_LOCATION_FLOOR_KEY, "1");
+        setProperty(MAIL_TO_CREATE_KEY, "80");
+        setProperty(FEE_CHARGING_KEY, "false");
+        setProperty(SIMULATION_ENGINE_KEY, "tick");
+        setProperty(MAIL_GENERATION_KEY, "batch");
+        setProperty(MAIL_STREAM_BUFFER_KEY, "1000000");
+        setProperty(MAIL_GENERATION_THREADS_KEY, "0");
+        setProperty(MAIL_TRACE_FILE_KEY, "");
+        setProperty(EVENT_LOG_KEY, "text");
+        setProperty(EVENT_LOG_FILE_KEY, "events.bin");
+        setProperty(EVENT_LOG_BUFFER_KEY, "65536");
+        setProperty(LOG_LEVEL_KEY, "full");
+        setProperty(LOG_SAMPLE_RATE_KEY, "100");
+        setProperty(FEE_CACHE_TTL_KEY, "0");
+        setProperty(FEE_CACHE_TTL_FLOORS_KEY, "");
+        setProperty(FEE_CACHE_WARMUP_KEY, "false");
+        setProperty(FEE_LOOKUP_ASYNC_KEY, "false");
+        setProperty(FEE_LOOKUP_THREADS_KEY, "4");
+        setProperty(FEE_MODEM_KEY, "wifi");
+        setProperty(STUB_MODEM_LATENCY_KEY, "0");
+        setProperty(STUB_MODEM_FAILURE_RATE_KEY, "0");
+        setProperty(FEE_BREAKER_FAILURE_THRESHOLD_KEY, "0");
+        setProperty(FEE_BREAKER_OPEN_MILLIS_KEY, "1000");
+        setProperty(FEE_BREAKER_TIMEOUT_MILLIS_KEY, "0");
+        setProperty(FEE_BREAKER_MAX_RETRIES_KEY, "1");
+        setProperty(FEE_BREAKER_RETRY_RATIO_KEY, "0.1");
+        setProperty(TICK_PROFILER_KEY, "false");
+        setProperty(TICK_PROFILER_FILE_KEY, "tick-profile.json");
+        setProperty(DELIVERY_METRICS_KEY, "false");
+        setProperty(DELIVERY_METRICS_FILE_KEY, "delivery-metrics.json");
+        setProperty(DELIVERY_METRICS_WEIGHT_BAND_KEY, "500");
+        setProperty(SIMULATION_MONITOR_KEY, "false");
+        setProperty(DISPATCH_STRATEGY_KEY, "pool");
+        setProperty(ROUTE_PLANNING_KEY, "none");
+        setProperty(DISPATCH_COST_WEIGHT_KEY, "0");
+        setProperty(PRIORITY_AGING_RATE_KEY, "0.05");
+        setProperty(PRIORITY_WEIGHTED_DELAY_KEY, "false");
+    }
+
+    /**
+     * @return the lines printed when the properties file was loaded
+     */
+    public List<String> getSummary()
+    {
+        return Collections.unmodifiableList(summary);
+    }
+
+    private void summarise(String line)
+    {
+        summary.add(line);
+        System.out.println(line);
+    }
+
+    private void printSummary()
+    {
         // Floors
         int nFloors = Integer.parseInt(getProperty(N_FLOORS_KEY));
-        System.out.println("#Floors: " + nFloors);
+        summarise("#Floors: " + nFloors);
 
         // Mail_to_Create
         int mail_to_create = Integer.parseInt(getProperty(MAIL_TO_CREATE_KEY));
-        System.out.println("#Created mails: " + mail_to_create);
+        summarise("#Created mails: " + mail_to_create);
 
         // Max_mail_weight
         int mail_max_weight = Integer.parseInt(getProperty(MAIL_MAX_WEIGHT_KEY));
-        System.out.println("#Maximum weight: " + mail_max_weight);
+        summarise("#Maximum weight: " + mail_max_weight);
 
         // Last_Delivery_Time
         int mail_receiving_length = Integer.parseInt(getProperty(MAIL_RECEIVING_LENGTH_KEY));
-        System.out.println("#Mail receiving length: " + mail_receiving_length);
+        summarise("#Mail receiving length: " + mail_receiving_length);
 
         // Robots
         int num_regular_robots = Integer.parseInt(getProperty(REGULAR_ROBOTS_KEY));
         int num_fast_robots = Integer.parseInt(getProperty(FAST_ROBOTS_KEY));
         int num_bulk_robots = Integer.parseInt(getProperty(BULK_ROBOTS_KEY));
         int total_robots = num_regular_robots + num_fast_robots + num_bulk_robots;
-        System.out.println("#RegularRobots: " + num_regular_robots);
-        System.out.println("#FastRobots: " + num_fast_robots);
-        System.out.println("#BulkRobots: " + num_bulk_robots);
-        System.out.println("#TotalRobots: " + total_robots);
+        summarise("#RegularRobots: " + num_regular_robots);
+        summarise("#FastRobots: " + num_fast_robots);
+        summarise("#BulkRobots: " + num_bulk_robots);
+        summarise("#TotalRobots: " + total_robots);
         assert(total_robots > 0);
 
         // Calculate charge for a service fee and a maintenance cost.
         boolean fee_Charging = Boolean.parseBoolean(getProperty(FEE_CHARGING_KEY));
-        System.out.println("Is fee charging enabled: " + fee_Charging);
+        summarise("Is fee charging enabled: " + fee_Charging);
     }
 }
@@ -0,0 +1,93 @@
+package util;
+
+/**
+ * New Class: Team 03
+ * Fixed memory histogram of non-negative long values, e.g. durations in nanoseconds or ticks.
+ *
+ * Values are counted in log-linear buckets as in an HDR histogram: values below 32 have a bucket each, and every
+ * power of two above that is split into 16 buckets, so any value is known to within 1/16 (about 6%) whatever its
+ * magnitude. The whole range of long takes 976 counters and recording a value never allocates.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * @param value the value to count, negative values are counted as 0
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * @param value the value to count, negative values are counted as 0
+     * @param times how many times the value is counted
+     */
+    public void record(long value, long times) {
+        if (times <= 0) return;
+        value = Math.max(0, value);
+        counts[bucketOf(value)] += times;
+        count += times;
+        total += value * times;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Add the counts of another histogram to this one
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() { return count; }
+    public long getTotal() { return total; }
+    public long getMin() { return count == 0 ? 0 : min; }
+    public long getMax() { return max; }
+    public double getMean() { return count == 0 ? 0 : (double) total / count; }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return a value at least as large as the given percentage of the values, at most 1/16 too large,
+     *         or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(highestValueOf(i), max);
+        }
+        return max;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + top - HALF_SUB_BUCKETS;
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long top = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        /** The highest bucket ends at Long.MAX_VALUE, where the next lower bound overflows */
+        long next = (top + 1) << shift;
+        return next < 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
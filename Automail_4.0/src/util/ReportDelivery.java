@@ -1,36 +1,49 @@
 package util;
 
+import automail.FeeCharge;
 import automail.MailItem;
 import automail.Robot;
 import exceptions.MailAlreadyDeliveredException;
-import simulation.Clock;
 import simulation.IMailDelivery;
+import simulation.SimulationContext;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 public class ReportDelivery implements IMailDelivery {
 
 
-    /** An array list to record mails that have been delivered*/
-    private Set<MailItem> deliveredItems;
-    private static double total_delay = 0;
+    /** Records the IDs of mails that have been delivered, one bit per mail item */
+    private BitSet deliveredItems;
+    private int deliveredCount = 0;
+    private double total_delay = 0;
+    private final SimulationContext context;
+    /** Weigh the delay of an item by its priority level, when Priority_Weighted_Delay is on */
+    private final boolean priorityWeighted;
 
-    public ReportDelivery()
+    /**
+     * @param context the simulation whose deliveries are reported
+     */
+    public ReportDelivery(SimulationContext context)
     {
-        deliveredItems = new HashSet<>();
+        this.context = context;
+        deliveredItems = new BitSet();
+        priorityWeighted = Boolean.parseBoolean(
+                context.getConfiguration().getProperty(Configuration.PRIORITY_WEIGHTED_DELAY_KEY));
     }
 
     /** Confirm the delivery and calculate the total score */
     @Override
-    public void deliver(Robot robot, MailItem deliveryItem, String additionalLog ){
-        if(!deliveredItems.contains(deliveryItem))
+    public void deliver(Robot robot, MailItem deliveryItem, FeeCharge fee){
+        if(!deliveredItems.get(deliveryItem.getIdNumber()))
         {
-            deliveredItems.add(deliveryItem);
-            System.out.printf("T: %3d > %7s-> Delivered(%4d) [%s%s]%n", Clock.Time(), robot.getIdTube(), deliveredItems.size(), deliveryItem.toString(), additionalLog);
+            deliveredItems.set(deliveryItem.getIdNumber());
+            deliveredCount++;
+            context.getEventLog().delivered(context.getClock().Time(), robot, deliveredCount, deliveryItem, fee);
+            context.getDeliveryMetrics().delivered(deliveryItem, context.getClock().Time());
             // Calculate delivery score
-            total_delay += calculateDeliveryDelay(deliveryItem);
+            double delay = calculateDeliveryDelay(deliveryItem);
+            total_delay += delay;
+            context.getMonitor().delivered(delay);
         }
         else{
             try {
@@ -41,22 +54,35 @@ public class ReportDelivery implements IMailDelivery {
         }
     }
 
+    /** Size the record of delivered items for every item of the run, so it never grows mid-run */
+    @Override
+    public void expectMailItems(int mailItems) {
+        BitSet sized = new BitSet(mailItems);
+        sized.or(deliveredItems);
+        deliveredItems = sized;
+    }
+
     public double getTotal_delay()
     {
         return total_delay;
     }
 
     @Override
-    public Set<MailItem> getDeliveredItems() {
-        return Collections.unmodifiableSet(deliveredItems);
+    public int getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    @Override
+    public boolean isDelivered(MailItem mailItem) {
+        return deliveredItems.get(mailItem.getIdNumber());
     }
 
-    private static double calculateDeliveryDelay(MailItem deliveryItem) {
+    private double calculateDeliveryDelay(MailItem deliveryItem) {
         // Penalty for longer delivery times
         final double penalty = 1.2;
-        double priority_weight = 0;
+        double priority_weight = priorityWeighted ? deliveryItem.getPriority() : 0;
         // Take (delivery time - arrivalTime)**penalty * (1+sqrt(priority_weight))
-        return Math.pow(Clock.Time() - deliveryItem.getArrivalTime(),penalty)*(1+Math.sqrt(priority_weight));
+        return Math.pow(context.getClock().Time() - deliveryItem.getArrivalTime(),penalty)*(1+Math.sqrt(priority_weight));
     }
 
 }
@@ -0,0 +1,251 @@
+package automail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static util.Checks.check;
+import static util.Checks.checkEquals;
+import static util.Checks.run;
+import static util.Checks.test;
+
+/**
+ * New Class: Team 03
+ * Drives a CircuitBreaker through a BMS whose modem fails, hangs or answers on demand.
+ */
+public class CircuitBreakerTest {
+
+    public static void main(String[] args) {
+        run("CircuitBreakerTest",
+                test("opensHalfOpensAndCloses", CircuitBreakerTest::opensHalfOpensAndCloses),
+                test("failedTrialReopens", CircuitBreakerTest::failedTrialReopens),
+                test("lateSuccessDoesNotCloseOpenBreaker", CircuitBreakerTest::lateSuccessDoesNotCloseOpenBreaker),
+                test("lateFailureDoesNotEndTrial", CircuitBreakerTest::lateFailureDoesNotEndTrial),
+                test("timeoutFailsTheAttempt", CircuitBreakerTest::timeoutFailsTheAttempt),
+                test("hangingModemUsesBoundedThreads", CircuitBreakerTest::hangingModemUsesBoundedThreads),
+                test("retryBudgetLimitsRetries", CircuitBreakerTest::retryBudgetLimitsRetries),
+                test("fastFailsDoNotEarnRetries", CircuitBreakerTest::fastFailsDoNotEarnRetries));
+    }
+
+    /**
+     * A modem that is serialised like the WifiModem and can be made to fail, or to block until released
+     */
+    private static class FaultyModem implements ServiceFeeModem {
+        volatile boolean failing = false;
+        volatile CountDownLatch hold = null;
+        volatile CountDownLatch entered = null;
+        int calls = 0;
+
+        @Override
+        public synchronized double forwardCallToAPI_LookupPrice(int floor) {
+            calls++;
+            CountDownLatch entry = entered;
+            if (entry != null) entry.countDown();
+            CountDownLatch latch = hold;
+            /** Like the WifiModem, the call is not cut short by an interrupt */
+            boolean interrupted = false;
+            while (latch != null) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return failing ? -1 : floor;
+        }
+
+        synchronized int getCalls() { return calls; }
+    }
+
+    private static BMS bms(FaultyModem modem, CircuitBreaker breaker) {
+        BMS bms = new BMS(modem);
+        bms.setCircuitBreaker(breaker);
+        return bms;
+    }
+
+    private static void opensHalfOpensAndCloses() throws InterruptedException {
+        FaultyModem modem = new FaultyModem();
+        CircuitBreaker breaker = new CircuitBreaker(3, 50, 0, 0, 0.1);
+        BMS bms = bms(modem, breaker);
+
+        checkEquals(5.0, bms.requestServiceFee(5), "fee while the modem works");
+        modem.failing = true;
+        for (int i = 0; i < 3; i++) bms.requestServiceFee(5);
+        checkEquals(CircuitBreaker.State.OPEN, breaker.getState(), "state after three failures");
+
+        int calls = modem.getCalls();
+        checkEquals(CircuitBreaker.FAILED, bms.requestServiceFee(5), "result while open");
+        checkEquals(calls, modem.getCalls(), "modem calls while open");
+        checkEquals(1L, breaker.getFastFails(), "fast fails while open");
+
+        Thread.sleep(70);
+        modem.failing = false;
+        checkEquals(5.0, bms.requestServiceFee(5), "trial result");
+        checkEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "state after the trial");
+        checkEquals(1L, breaker.getTransitions(CircuitBreaker.State.OPEN), "times opened");
+        checkEquals(1L, breaker.getTransitions(CircuitBreaker.State.HALF_OPEN), "times half opened");
+        checkEquals(1L, breaker.getTransitions(CircuitBreaker.State.CLOSED), "times closed");
+    }
+
+    private static void failedTrialReopens() throws InterruptedException {
+        FaultyModem modem = new FaultyModem();
+        CircuitBreaker breaker = new CircuitBreaker(1, 30, 0, 0, 0.1);
+        BMS bms = bms(modem, breaker);
+        modem.failing = true;
+        bms.requestServiceFee(1);
+        Thread.sleep(50);
+        bms.requestServiceFee(1);
+        checkEquals(CircuitBreaker.State.OPEN, breaker.getState(), "state after a failed trial");
+        checkEquals(2L, breaker.getTransitions(CircuitBreaker.State.OPEN), "times opened");
+    }
+
+    /**
+     * A call let through while CLOSED that succeeds after the breaker opened must not close it
+     */
+    private static void lateSuccessDoesNotCloseOpenBreaker() throws Exception {
+        FaultyModem slowModem = new FaultyModem();
+        FaultyModem failingModem = new FaultyModem();
+        failingModem.failing = true;
+        CircuitBreaker breaker = new CircuitBreaker(2, 10_000, 0, 0, 0.1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            slowModem.hold = new CountDownLatch(1);
+            slowModem.entered = new CountDownLatch(1);
+            Future<Double> late = caller.submit(() -> bms(slowModem, breaker).requestServiceFee(3));
+            check(slowModem.entered.await(1, TimeUnit.SECONDS), "slow call started");
+
+            BMS failing = bms(failingModem, breaker);
+            failing.requestServiceFee(3);
+            failing.requestServiceFee(3);
+            checkEquals(CircuitBreaker.State.OPEN, breaker.getState(), "state after two failures");
+
+            slowModem.hold.countDown();
+            checkEquals(3.0, late.get(1, TimeUnit.SECONDS), "late result");
+            checkEquals(CircuitBreaker.State.OPEN, breaker.getState(), "state after the late success");
+            checkEquals(0L, breaker.getTransitions(CircuitBreaker.State.CLOSED), "times closed");
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    /**
+     * A call let through while CLOSED that fails during the HALF_OPEN trial must neither re-open the breaker nor
+     * let a second trial through
+     */
+    private static void lateFailureDoesNotEndTrial() throws Exception {
+        FaultyModem lateModem = new FaultyModem();
+        lateModem.failing = true;
+        FaultyModem trialModem = new FaultyModem();
+        FaultyModem otherModem = new FaultyModem();
+        CircuitBreaker breaker = new CircuitBreaker(1, 30, 0, 0, 0.1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            lateModem.hold = new CountDownLatch(1);
+            lateModem.entered = new CountDownLatch(1);
+            Future<Double> late = callers.submit(() -> bms(lateModem, breaker).requestServiceFee(4));
+            check(lateModem.entered.await(1, TimeUnit.SECONDS), "late call started");
+
+            FaultyModem failingModem = new FaultyModem();
+            failingModem.failing = true;
+            bms(failingModem, breaker).requestServiceFee(4);
+            checkEquals(CircuitBreaker.State.OPEN, breaker.getState(), "state after a failure");
+            Thread.sleep(50);
+
+            trialModem.hold = new CountDownLatch(1);
+            trialModem.entered = new CountDownLatch(1);
+            Future<Double> trial = callers.submit(() -> bms(trialModem, breaker).requestServiceFee(4));
+            check(trialModem.entered.await(1, TimeUnit.SECONDS), "trial started");
+            checkEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "state during the trial");
+
+            lateModem.hold.countDown();
+            checkEquals(CircuitBreaker.FAILED, late.get(1, TimeUnit.SECONDS), "late result");
+            checkEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "state after the late failure");
+            checkEquals(CircuitBreaker.FAILED, bms(otherModem, breaker).requestServiceFee(4), "second trial");
+            checkEquals(0, otherModem.getCalls(), "modem calls of a second trial");
+
+            trialModem.hold.countDown();
+            checkEquals(4.0, trial.get(1, TimeUnit.SECONDS), "trial result");
+            checkEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "state after the trial");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static void timeoutFailsTheAttempt() {
+        FaultyModem modem = new FaultyModem();
+        modem.hold = new CountDownLatch(1);
+        CircuitBreaker breaker = new CircuitBreaker(5, 1000, 50, 0, 0.1);
+        try {
+            long start = System.nanoTime();
+            checkEquals(CircuitBreaker.FAILED, bms(modem, breaker).requestServiceFee(2), "result of a hung call");
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            check(millis < 500, "hung call took " + millis + " ms");
+            checkEquals(1L, breaker.getTimeouts(), "timeouts");
+        } finally {
+            modem.hold.countDown();
+        }
+    }
+
+    /**
+     * While the modem hangs, timed out calls keep their threads, and once MAX_CALL_THREADS are stuck further
+     * attempts fail fast instead of starting new threads
+     */
+    private static void hangingModemUsesBoundedThreads() {
+        FaultyModem modem = new FaultyModem();
+        modem.hold = new CountDownLatch(1);
+        CircuitBreaker breaker = new CircuitBreaker(1000, 1000, 10, 0, 0.1);
+        BMS bms = bms(modem, breaker);
+        try {
+            int before = modemCallThreads();
+            for (int i = 0; i < 50; i++) bms.requestServiceFee(6);
+            int threads = modemCallThreads() - before;
+            check(threads <= CircuitBreaker.MAX_CALL_THREADS, threads + " modem call threads started");
+            checkEquals(50L - CircuitBreaker.MAX_CALL_THREADS, breaker.getFastFails(), "fast fails");
+            checkEquals((long) CircuitBreaker.MAX_CALL_THREADS, breaker.getTimeouts(), "timeouts");
+        } finally {
+            modem.hold.countDown();
+        }
+    }
+
+    /**
+     * @return live threads of every breaker, including idle ones left by earlier cases
+     */
+    private static int modemCallThreads() {
+        int threads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("modem-call") && thread.isAlive()) threads++;
+        }
+        return threads;
+    }
+
+    private static void retryBudgetLimitsRetries() {
+        FaultyModem modem = new FaultyModem();
+        modem.failing = true;
+        CircuitBreaker breaker = new CircuitBreaker(1_000_000, 1000, 0, 3, 0.1);
+        BMS bms = bms(modem, breaker);
+        for (int i = 0; i < 100; i++) bms.requestServiceFee(1);
+        /** 10 tokens to start with and 0.1 earned per call: about 20 retries, not the 300 asked for */
+        long retries = breaker.getRetries();
+        check(retries >= 19 && retries <= 20, retries + " retries");
+        checkEquals(100 + retries, (long) modem.getCalls(), "modem calls");
+        check(breaker.getRetryBudgetExhausted() > 0, "retry budget ran out");
+    }
+
+    private static void fastFailsDoNotEarnRetries() {
+        FaultyModem modem = new FaultyModem();
+        modem.failing = true;
+        CircuitBreaker breaker = new CircuitBreaker(1, 10_000, 0, 10, 0.5);
+        BMS bms = bms(modem, breaker);
+        bms.requestServiceFee(1);
+        checkEquals(CircuitBreaker.State.OPEN, breaker.getState(), "state after a failure");
+        double tokens = breaker.getRetryTokens();
+        check(tokens < 1, "budget spent by the retries, " + tokens + " left");
+        for (int i = 0; i < 1000; i++) bms.requestServiceFee(1);
+        checkEquals(1000L, breaker.getFastFails(), "fast fails");
+        checkEquals(tokens, breaker.getRetryTokens(), "tokens after fast fails");
+    }
+}
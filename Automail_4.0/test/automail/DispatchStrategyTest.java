@@ -0,0 +1,190 @@
+package automail;
+
+import simulation.SimulationContext;
+import util.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static util.Checks.check;
+import static util.Checks.checkEquals;
+import static util.Checks.run;
+import static util.Checks.test;
+
+/**
+ * New Class: Team 03
+ * Loads of the dispatch strategies in a building with the mailroom in the middle: a load is delivered on one side
+ * of the mailroom and then the other, each side from the mailroom outwards, and never zig-zags across it.
+ */
+public class DispatchStrategyTest {
+
+    public static void main(String[] args) {
+        run("DispatchStrategyTest",
+                test("nearestFloorFillsOneSideFirst", DispatchStrategyTest::nearestFloorFillsOneSideFirst),
+                test("typeAwareFillsOneSideFirst", DispatchStrategyTest::typeAwareFillsOneSideFirst),
+                test("typeAwareSendsTheFasterRobotFarther", DispatchStrategyTest::typeAwareSendsTheFasterRobotFarther),
+                test("clusterLeavesFloorsBeyondTheAnchor", DispatchStrategyTest::clusterLeavesFloorsBeyondTheAnchor),
+                test("clusterAnchorsForItemsPerTick", DispatchStrategyTest::clusterAnchorsForItemsPerTick),
+                test("loadsCrossTheMailroomOnce", DispatchStrategyTest::loadsCrossTheMailroomOnce));
+    }
+
+    private static final int LOWEST_FLOOR = 1;
+    private static final int FLOORS = 21;
+    private static final int MAILROOM = 11;
+
+    /**
+     * @return a simulation in a building with the mailroom in the middle, with one FastRobot and one BulkRobot
+     */
+    private static SimulationContext context() {
+        Properties properties = new Properties();
+        properties.setProperty(Configuration.MAIL_MAX_WEIGHT_KEY, "2000");
+        properties.setProperty(Configuration.MAIL_RECEIVING_LENGTH_KEY, "100");
+        properties.setProperty(Configuration.N_FLOORS_KEY, Integer.toString(FLOORS));
+        properties.setProperty(Configuration.LOWEST_FLOOR_KEY, Integer.toString(LOWEST_FLOOR));
+        properties.setProperty(Configuration.MAILROOM_LOCATION_FLOOR_KEY, Integer.toString(MAILROOM));
+        properties.setProperty(Configuration.REGULAR_ROBOTS_KEY, "0");
+        properties.setProperty(Configuration.FAST_ROBOTS_KEY, "1");
+        properties.setProperty(Configuration.BULK_ROBOTS_KEY, "1");
+        return new SimulationContext(Configuration.of(properties), new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    private static FloorIndexedMailQueue pool(int... floors) {
+        return pool(null, floors);
+    }
+
+    /**
+     * @param priorityOrder the order the strategy keeps each floor in, or null for arrival order
+     */
+    private static FloorIndexedMailQueue pool(Comparator<MailItem> priorityOrder, int... floors) {
+        FloorIndexedMailQueue pool = new FloorIndexedMailQueue(LOWEST_FLOOR, FLOORS, priorityOrder);
+        for (int i = 0; i < floors.length; i++) pool.add(new MailItem(floors[i], i, 100, i));
+        return pool;
+    }
+
+    /**
+     * @return the floors a robot delivers to, in order
+     */
+    private static List<Integer> floorsOf(Robot robot) {
+        List<MailItem> items = new ArrayList<>();
+        robot.getLoad(items);
+        List<Integer> floors = new ArrayList<>();
+        for (MailItem item : items) floors.add(item.getDestFloor());
+        return floors;
+    }
+
+    private static void nearestFloorFillsOneSideFirst() throws Exception {
+        SimulationContext context = context();
+        Automail automail = new Automail(context, new MailPool(context));
+        Robot bulk = automail.getRobots()[1];
+        FloorIndexedMailQueue pool = pool(12, 10, 13, 9, 14, 8);
+        new NearestFloorDispatchStrategy(context.getBuilding()).dispatch(new Robot[] { bulk }, 1, pool);
+        /** Floor 10 is as near as floor 12 and lower, so the floors below go first */
+        checkEquals(Arrays.asList(10, 9, 8, 12, 13), floorsOf(bulk), "load of the BulkRobot");
+        checkEquals(14, pool.getFirst().getDestFloor(), "floor left in the pool");
+    }
+
+    private static void typeAwareFillsOneSideFirst() throws Exception {
+        SimulationContext context = context();
+        Automail automail = new Automail(context, new MailPool(context));
+        Robot fast = automail.getRobots()[0];
+        Robot bulk = automail.getRobots()[1];
+        FloorIndexedMailQueue pool = pool(12, 10, 13, 9, 14, 8, 7);
+        new TypeAwareDispatchStrategy(context.getBuilding()).dispatch(new Robot[] { bulk, fast }, 2, pool);
+        checkEquals(Arrays.asList(10), floorsOf(fast), "load of the FastRobot");
+        checkEquals(Arrays.asList(12, 13, 9, 8, 7), floorsOf(bulk), "load of the BulkRobot");
+        checkEquals(14, pool.getFirst().getDestFloor(), "floor left in the pool");
+    }
+
+    /**
+     * An item on the floor of the mailroom is the quickest delivery for either robot, but a trip away from the
+     * mailroom saves the FastRobot the most time over the BulkRobot
+     */
+    private static void typeAwareSendsTheFasterRobotFarther() throws Exception {
+        SimulationContext context = context();
+        Automail automail = new Automail(context, new MailPool(context));
+        Robot fast = automail.getRobots()[0];
+        Robot bulk = automail.getRobots()[1];
+        FloorIndexedMailQueue pool = pool(MAILROOM, MAILROOM + 1);
+        new TypeAwareDispatchStrategy(context.getBuilding()).dispatch(new Robot[] { bulk, fast }, 2, pool);
+        checkEquals(Arrays.asList(MAILROOM + 1), floorsOf(fast), "load of the FastRobot");
+        checkEquals(Arrays.asList(MAILROOM), floorsOf(bulk), "load of the BulkRobot");
+    }
+
+    /**
+     * A cluster anchored below the highest floor takes its leftover from the other side, not from above the anchor
+     */
+    private static void clusterLeavesFloorsBeyondTheAnchor() throws Exception {
+        SimulationContext context = context();
+        Automail automail = new Automail(context, new MailPool(context));
+        Robot bulk = automail.getRobots()[1];
+        FloorIndexedMailQueue pool = pool(14, 13, 18, 9);
+        new ClusteredDispatchStrategy(context.getBuilding()).loadCluster(bulk, pool, 14);
+        checkEquals(Arrays.asList(9, 13, 14), floorsOf(bulk), "load of the BulkRobot");
+        checkEquals(18, pool.getFirst().getDestFloor(), "floor left in the pool");
+    }
+
+    /**
+     * A full load one floor away beats a single item ten floors away, however far that item is
+     */
+    private static void clusterAnchorsForItemsPerTick() throws Exception {
+        SimulationContext context = context();
+        Automail automail = new Automail(context, new MailPool(context));
+        Robot bulk = automail.getRobots()[1];
+        FloorIndexedMailQueue pool = pool(1, 12, 12, 12, 12, 12);
+        new ClusteredDispatchStrategy(context.getBuilding()).dispatch(new Robot[] { bulk }, 1, pool);
+        checkEquals(Arrays.asList(12, 12, 12, 12, 12), floorsOf(bulk), "load of the BulkRobot");
+        checkEquals(1, pool.getFirst().getDestFloor(), "floor left in the pool");
+    }
+
+    /**
+     * Random pools around the mailroom, dispatched by each strategy that loads robots itself
+     */
+    private static void loadsCrossTheMailroomOnce() throws Exception {
+        Random random = new Random(30006);
+        for (int round = 0; round < 500; round++) {
+            int[] floors = new int[1 + random.nextInt(8)];
+            for (int i = 0; i < floors.length; i++) floors[i] = LOWEST_FLOOR + random.nextInt(FLOORS);
+            for (String strategy : new String[] { "nearest-floor", "type-aware", "clustered", "cost", "priority" }) {
+                SimulationContext context = context();
+                context.getConfiguration().setProperty(Configuration.DISPATCH_STRATEGY_KEY, strategy);
+                Automail automail = new Automail(context, new MailPool(context));
+                Robot[] robots = automail.getRobots();
+                DispatchStrategy dispatch = DispatchStrategy.fromConfiguration(context.getConfiguration(),
+                        context.getBuilding(), context.getClock());
+                dispatch.dispatch(robots.clone(), robots.length, pool(dispatch.priorityOrder(), floors));
+                for (Robot robot : robots) {
+                    List<Integer> load = floorsOf(robot);
+                    check(sweepsOutwards(load), strategy + " loaded " + load + " from " + Arrays.toString(floors));
+                }
+            }
+        }
+    }
+
+    /**
+     * Items for the floor of the mailroom are passed on every trip, so they may be delivered at any point
+     * @return true if the floors are on one side of the mailroom and then the other, each side nearest first
+     */
+    private static boolean sweepsOutwards(List<Integer> floors) {
+        int side = 0;
+        int crossings = 0;
+        int distance = 0;
+        for (int floor : floors) {
+            int floorSide = Integer.signum(floor - MAILROOM);
+            if (floorSide == 0) continue;
+            if (side != 0 && floorSide != side) {
+                if (++crossings > 1) return false;
+                distance = 0;
+            }
+            side = floorSide;
+            if (Math.abs(floor - MAILROOM) < distance) return false;
+            distance = Math.abs(floor - MAILROOM);
+        }
+        return true;
+    }
+}
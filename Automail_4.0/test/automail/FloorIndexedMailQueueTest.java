@@ -0,0 +1,111 @@
+package automail;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static util.Checks.check;
+import static util.Checks.checkEquals;
+import static util.Checks.run;
+import static util.Checks.test;
+
+/**
+ * New Class: Team 03
+ * FloorIndexedMailQueue hands out items in the order of the sorted LinkedList it replaced, and adding to it does
+ * not slow down as the pool grows.
+ */
+public class FloorIndexedMailQueueTest {
+
+    public static void main(String[] args) {
+        run("FloorIndexedMailQueueTest",
+                test("sameOrderAsSortedList", FloorIndexedMailQueueTest::sameOrderAsSortedList),
+                test("sameOrderAfterBatchAdd", FloorIndexedMailQueueTest::sameOrderAfterBatchAdd),
+                test("largePoolScalesLinearly", FloorIndexedMailQueueTest::largePoolScalesLinearly));
+    }
+
+    /** The comparator of the original MailPool, applied by a stable sort after every add */
+    private static final Comparator<MailItem> HIGHEST_FLOOR_FIRST =
+            (a, b) -> Integer.compare(b.getDestFloor(), a.getDestFloor());
+
+    /**
+     * Random adds interleaved with removals, checked against the original list item by item
+     */
+    private static void sameOrderAsSortedList() {
+        Random random = new Random(30006);
+        FloorIndexedMailQueue queue = new FloorIndexedMailQueue(1, 20);
+        LinkedList<MailItem> sortedList = new LinkedList<>();
+        int id = 0;
+        for (int step = 0; step < 20_000; step++) {
+            if (random.nextInt(3) > 0 || sortedList.isEmpty()) {
+                MailItem mailItem = new MailItem(1 + random.nextInt(20), step, 100, id++);
+                queue.add(mailItem);
+                sortedList.add(mailItem);
+                sortedList.sort(HIGHEST_FLOOR_FIRST);
+            } else {
+                checkEquals(sortedList.getFirst(), queue.getFirst(), "first item at step " + step);
+                checkEquals(sortedList.removeFirst(), queue.removeFirst(), "removed item at step " + step);
+            }
+            checkEquals(sortedList.size(), queue.size(), "size at step " + step);
+        }
+        while (!sortedList.isEmpty()) checkEquals(sortedList.removeFirst(), queue.removeFirst(), "draining");
+        check(queue.isEmpty(), "queue is empty once drained");
+    }
+
+    private static void sameOrderAfterBatchAdd() {
+        Random random = new Random(7);
+        FloorIndexedMailQueue queue = new FloorIndexedMailQueue(-3, 10);
+        List<MailItem> batch = new ArrayList<>();
+        for (int id = 0; id < 1000; id++) batch.add(new MailItem(-3 + random.nextInt(10), id, 100, id));
+        queue.addAll(batch);
+        List<MailItem> sortedList = new ArrayList<>(batch);
+        sortedList.sort(HIGHEST_FLOOR_FIRST);
+        for (MailItem expected : sortedList) checkEquals(expected, queue.removeFirst(), "batch order");
+    }
+
+    /**
+     * Filling and draining a pool four times as large takes about four times as long. The sorted list took
+     * sixteen times as long, as every add re-sorted the whole pool.
+     */
+    private static void largePoolScalesLinearly() {
+        int small = 250_000;
+        fillAndDrain(small);
+        long smallNanos = Long.MAX_VALUE;
+        long largeNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            smallNanos = Math.min(smallNanos, fillAndDrain(small));
+            largeNanos = Math.min(largeNanos, fillAndDrain(4 * small));
+        }
+        double ratio = (double) largeNanos / smallNanos;
+        System.out.printf("  %d items: %.1f ns/item, %d items: %.1f ns/item%n", small, (double) smallNanos / small,
+                4 * small, (double) largeNanos / (4 * small));
+        check(ratio < 10, "4x the items took " + ratio + "x the time");
+    }
+
+    /**
+     * @return nanoseconds taken to add the items to a 1000 floor pool and take them all out in order
+     */
+    private static long fillAndDrain(int items) {
+        Random random = new Random(items);
+        MailItem[] mailItems = new MailItem[items];
+        for (int id = 0; id < items; id++) mailItems[id] = new MailItem(random.nextInt(1000), id, 100, id);
+        long start = System.nanoTime();
+        FloorIndexedMailQueue queue = new FloorIndexedMailQueue(0, 1000);
+        for (MailItem mailItem : mailItems) queue.add(mailItem);
+        int lastFloor = Integer.MAX_VALUE;
+        int lastArrival = -1;
+        for (int i = 0; i < items; i++) {
+            MailItem mailItem = queue.removeFirst();
+            int floor = mailItem.getDestFloor();
+            if (floor > lastFloor || (floor == lastFloor && mailItem.getArrivalTime() < lastArrival)) {
+                throw new AssertionError("Out of order at item " + i);
+            }
+            lastFloor = floor;
+            lastArrival = mailItem.getArrivalTime();
+        }
+        long nanos = System.nanoTime() - start;
+        check(queue.isEmpty(), "queue is empty once drained");
+        return nanos;
+    }
+}
@@ -0,0 +1,130 @@
+package simulation;
+
+import automail.MailPool;
+import util.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+
+import static util.Checks.check;
+import static util.Checks.checkEquals;
+import static util.Checks.run;
+import static util.Checks.test;
+
+/**
+ * New Class: Team 03
+ * Streaming generation produces the same mail as batch generation, and stops replaying the random sequence once
+ * the last mail has arrived.
+ */
+public class MailGeneratorTest {
+
+    public static void main(String[] args) {
+        run("MailGeneratorTest",
+                test("streamingMatchesBatch", MailGeneratorTest::streamingMatchesBatch),
+                test("streamingArrivalsMatchBatch", MailGeneratorTest::streamingArrivalsMatchBatch),
+                test("exhaustedStreamIsNotReplayed", MailGeneratorTest::exhaustedStreamIsNotReplayed));
+    }
+
+    /** Buffer sizes from one item per window to the whole run in one window */
+    private static final int[] BUFFER_SIZES = { 1, 7, 100, 1_000_000 };
+
+    private static final int RECEIVING_LENGTH = 300;
+
+    private static SimulationContext context(PrintStream out) {
+        Properties properties = new Properties();
+        properties.setProperty(Configuration.MAIL_TO_CREATE_KEY, "500");
+        properties.setProperty(Configuration.MAIL_MAX_WEIGHT_KEY, "2000");
+        properties.setProperty(Configuration.MAIL_RECEIVING_LENGTH_KEY, Integer.toString(RECEIVING_LENGTH));
+        properties.setProperty(Configuration.N_FLOORS_KEY, "20");
+        properties.setProperty(Configuration.REGULAR_ROBOTS_KEY, "1");
+        properties.setProperty(Configuration.FAST_ROBOTS_KEY, "0");
+        properties.setProperty(Configuration.BULK_ROBOTS_KEY, "0");
+        return new SimulationContext(Configuration.of(properties), out);
+    }
+
+    private static MailGenerator generator(SimulationContext context) {
+        HashMap<Boolean, Integer> seed = new HashMap<>();
+        seed.put(true, 30006);
+        return new MailGenerator(context, 500, 2000, new MailPool(context), seed);
+    }
+
+    /**
+     * @return each mail item as its row of the workload, in arrival order, found by walking nextArrivalTime
+     */
+    private static List<String> rows(MailGenerator generator) {
+        List<String> rows = new ArrayList<>();
+        for (int tick = generator.nextArrivalTime(0); tick >= 0; tick = generator.nextArrivalTime(tick + 1)) {
+            MailWorkload workload = generator.getWorkload();
+            for (int row = workload.firstRow(tick); row < workload.endRow(tick); row++) {
+                rows.add(workload.getId(row) + " " + workload.getArrivalTime(row) + " "
+                        + workload.getDestinationFloor(row) + " " + workload.getWeight(row) + " "
+                        + workload.getPriority(row));
+            }
+        }
+        return rows;
+    }
+
+    private static void streamingMatchesBatch() {
+        MailGenerator batch = generator(context(new PrintStream(new ByteArrayOutputStream())));
+        batch.generateAllMail();
+        List<String> expected = rows(batch);
+        checkEquals(batch.getMailToCreate(), expected.size(), "batch mail items");
+        for (int bufferSize : BUFFER_SIZES) {
+            MailGenerator streaming = generator(context(new PrintStream(new ByteArrayOutputStream())));
+            streaming.startStreaming(bufferSize);
+            checkEquals(expected, rows(streaming), "mail streamed with a buffer of " + bufferSize);
+        }
+    }
+
+    /**
+     * @return the arrival log of adding the mail to the pool one tick at a time, past the end of the receiving
+     * period, as a simulation does
+     */
+    private static String arrivalLog(int bufferSize) {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        SimulationContext context = context(new PrintStream(log, true));
+        MailGenerator generator = generator(context);
+        if (bufferSize > 0) {
+            generator.startStreaming(bufferSize);
+        } else {
+            generator.generateAllMail();
+        }
+        for (int tick = 0; tick <= 2 * RECEIVING_LENGTH; tick++) {
+            generator.addToMailPool();
+            context.getClock().Tick();
+        }
+        context.getEventLog().flush();
+        return log.toString();
+    }
+
+    private static void streamingArrivalsMatchBatch() {
+        String expected = arrivalLog(0);
+        check(!expected.isEmpty(), "batch arrivals are logged");
+        for (int bufferSize : BUFFER_SIZES) {
+            checkEquals(expected, arrivalLog(bufferSize), "arrivals streamed with a buffer of " + bufferSize);
+        }
+    }
+
+    /**
+     * Past the last arrival every tick is covered by the same empty window, so no tick replays the sequence
+     */
+    private static void exhaustedStreamIsNotReplayed() {
+        MailGenerator generator = generator(context(new PrintStream(new ByteArrayOutputStream())));
+        generator.startStreaming(1);
+        int last = -1;
+        for (int tick = generator.nextArrivalTime(0); tick >= 0; tick = generator.nextArrivalTime(tick + 1)) {
+            last = tick;
+        }
+        check(last > 0 && last <= RECEIVING_LENGTH, "last arrival at " + last);
+        MailWorkload exhausted = generator.getWorkload();
+        checkEquals(0, exhausted.size(), "mail left after the last arrival");
+        for (int tick = last + 1; tick < 100 * RECEIVING_LENGTH; tick++) {
+            checkEquals(-1, generator.nextArrivalTime(tick), "next arrival after tick " + tick);
+            check(generator.getWorkload() == exhausted, "window replayed at tick " + tick);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package simulation;
+
+import automail.Automail;
+import automail.Building;
+import automail.MailItem;
+import automail.MailPool;
+import automail.Robot;
+import exceptions.ExcessiveDeliveryException;
+import util.Configuration;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static util.Checks.checkEquals;
+import static util.Checks.run;
+import static util.Checks.test;
+
+/**
+ * New Class: Team 03
+ * The core of the tick loop (MailPool.loadItemsToRobot, Robot.operate and ReportDelivery.deliver) allocates
+ * nothing once it has warmed up, with each of the event logs that do not format on the simulation thread.
+ *
+ * The pool is filled up front with more mail than the robots can deliver, so every measured tick loads, moves
+ * and delivers without new mail arriving. The bytes allocated by the test thread are read from
+ * com.sun.management.ThreadMXBean before and after the measured ticks. Fees are not charged, as the fee lookup
+ * goes through the BMS.
+ */
+public class TickLoopAllocationTest {
+
+    private static final int ROBOTS_PER_TYPE = 3;
+    /** Warm-up ticks, enough for the JIT to compile the loop, followed by as many measured ticks */
+    private static final int TICKS = 100_000;
+
+    public static void main(String[] args) {
+        run("TickLoopAllocationTest",
+                test("summaryLogAllocatesNothing", TickLoopAllocationTest::summaryLogAllocatesNothing),
+                test("binaryLogAllocatesNothing", TickLoopAllocationTest::binaryLogAllocatesNothing),
+                test("asyncLogAllocatesNothing", TickLoopAllocationTest::asyncLogAllocatesNothing));
+    }
+
+    private static void summaryLogAllocatesNothing() throws Exception {
+        checkNoAllocation(new FilteredEventLog(new TextEventLog(new PrintStream(OutputStream.nullOutputStream())),
+                FilteredEventLog.Level.SUMMARY, 1));
+    }
+
+    private static void binaryLogAllocatesNothing() throws Exception {
+        Path binaryFile = Files.createTempFile("tick-loop-allocation", ".bin");
+        try {
+            checkNoAllocation(new BinaryEventLog(binaryFile));
+        } finally {
+            Files.deleteIfExists(binaryFile);
+        }
+    }
+
+    private static void asyncLogAllocatesNothing() throws Exception {
+        checkNoAllocation(new AsyncTextEventLog(OutputStream.nullOutputStream(), 1 << 16));
+    }
+
+    /**
+     * Run the warm-up ticks and then the measured ticks of one simulation logging to the event log, which is
+     * closed afterwards
+     */
+    private static void checkNoAllocation(EventLog eventLog) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("  Thread allocation counting is not supported by this JVM, not checked");
+            eventLog.close();
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Properties properties = new Properties();
+        properties.setProperty(Configuration.SEED_KEY, "30006");
+        properties.setProperty(Configuration.MAIL_TO_CREATE_KEY, "200");
+        properties.setProperty(Configuration.MAIL_MAX_WEIGHT_KEY, "2000");
+        properties.setProperty(Configuration.MAIL_RECEIVING_LENGTH_KEY, "120");
+        properties.setProperty(Configuration.N_FLOORS_KEY, "12");
+        properties.setProperty(Configuration.LOWEST_FLOOR_KEY, "1");
+        properties.setProperty(Configuration.MAILROOM_LOCATION_FLOOR_KEY, "1");
+        properties.setProperty(Configuration.REGULAR_ROBOTS_KEY, Integer.toString(ROBOTS_PER_TYPE));
+        properties.setProperty(Configuration.FAST_ROBOTS_KEY, Integer.toString(ROBOTS_PER_TYPE));
+        properties.setProperty(Configuration.BULK_ROBOTS_KEY, Integer.toString(ROBOTS_PER_TYPE));
+        properties.setProperty(Configuration.FEE_CHARGING_KEY, "false");
+        SimulationContext context = new SimulationContext(Configuration.of(properties), eventLog);
+
+        try {
+            MailPool mailPool = new MailPool(context);
+            Robot[] robots = new Automail(context, mailPool).getRobots();
+            /** No robot delivers more than one item per tick */
+            int mailItems = 2 * TICKS * robots.length;
+            mailPool.addAllToPool(mailItems(context.getBuilding(), mailItems));
+            context.getDelivery().expectMailItems(mailItems);
+
+            long thread = Thread.currentThread().getId();
+            Clock clock = context.getClock();
+            runTicks(mailPool, robots, clock);
+
+            /** Reading the counter allocates a little itself, which is measured and taken off */
+            long start = threads.getThreadAllocatedBytes(thread);
+            long overhead = threads.getThreadAllocatedBytes(thread) - start;
+            start = threads.getThreadAllocatedBytes(thread);
+            runTicks(mailPool, robots, clock);
+            long bytes = Math.max(0, threads.getThreadAllocatedBytes(thread) - start - overhead);
+            checkEquals(0L, bytes, "bytes allocated in " + TICKS + " ticks");
+        } finally {
+            context.close();
+            eventLog.close();
+        }
+    }
+
+    private static void runTicks(MailPool mailPool, Robot[] robots, Clock clock) throws Exception {
+        try {
+            for (int i = 0; i < TICKS; i++) {
+                mailPool.loadItemsToRobot();
+                for (Robot robot : robots) robot.operate();
+                clock.Tick();
+            }
+        } catch (ExcessiveDeliveryException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Mail items for random floors of the building, light enough for every robot, with identifiers 0 up to count
+     */
+    private static List<MailItem> mailItems(Building building, int count) {
+        Random random = new Random(30006);
+        List<MailItem> mailItems = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            int floor = building.getLowestFloor() + random.nextInt(building.getnFloors());
+            mailItems.add(new MailItem(floor, 1, 200 + random.nextInt(1800), id));
+        }
+        return mailItems;
+    }
+}
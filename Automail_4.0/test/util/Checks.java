@@ -0,0 +1,77 @@
+package util;
+
+import java.util.Objects;
+
+/**
+ * New Class: Team 03
+ * Assertions for the test classes. The tree has no test framework, so each test class is a main method that
+ * runs all its cases, reporting each one, and exits with status 1 at the end if any case failed. A case stops at
+ * its first failed check.
+ */
+public final class Checks {
+
+    private Checks() { }
+
+    /**
+     * @throws AssertionError with the message if the condition is false
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /**
+     * @throws AssertionError if the values are not equal
+     */
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    /**
+     * Run the cases of a test class, printing one line per case
+     * @param testClass name printed with the cases
+     * @param cases the cases, run in order
+     */
+    public static void run(String testClass, Case... cases) {
+        int failed = 0;
+        for (Case testCase : cases) {
+            try {
+                testCase.run();
+                System.out.println(testClass + "." + testCase.name() + " OK");
+            } catch (Throwable e) {
+                failed++;
+                System.out.println(testClass + "." + testCase.name() + " FAILED");
+                e.printStackTrace(System.out);
+            }
+        }
+        if (failed > 0) System.exit(1);
+    }
+
+    /**
+     * @return a named test case
+     */
+    public static Case test(String name, Body body) {
+        return new Case(name, body);
+    }
+
+    /** Body of a test case */
+    public interface Body {
+        void run() throws Exception;
+    }
+
+    /** A test case with the name it is reported under */
+    public static final class Case {
+        private final String name;
+        private final Body body;
+
+        private Case(String name, Body body) {
+            this.name = name;
+            this.body = body;
+        }
+
+        public String name() { return name; }
+
+        void run() throws Exception { body.run(); }
+    }
+}